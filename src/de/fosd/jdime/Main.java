@@ -30,7 +30,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.Permission;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -54,6 +53,7 @@ import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.Statistics;
 import de.fosd.jdime.strategy.MergeStrategy;
 import de.fosd.jdime.strdump.DumpMode;
+import de.fosd.jdime.util.NoExitGuard;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
@@ -162,6 +162,14 @@ public final class Main {
             outputStatistics(context);
         }
 
+        if (context.isUseMatchingMemo()) {
+            LOG.info(context.getMatchingMemo()::toString);
+        }
+
+        if (context.getParseCache() != null) {
+            LOG.info(context.getParseCache()::toString);
+        }
+
         if (LOG.isLoggable(Level.FINE)) {
             Map<MergeScenario<?>, Throwable> crashes = context.getCrashes();
 
@@ -446,6 +454,11 @@ public final class Main {
         boolean conditional = context.isConditionalMerge();
         MergeOperation<FileArtifact> merge = new MergeOperation<>(inFiles, outFile, conditional);
 
+        if (context.hasStatistics() && context.getScanRuntime() != null) {
+            Statistics statistics = context.getStatistics();
+            statistics.getScenarioStatistics(merge.getMergeScenario()).putRuntime(context.getScanRuntime());
+        }
+
         merge.apply(context);
     }
 
@@ -457,6 +470,7 @@ public final class Main {
      * @param mode
      *         the dump format
      */
+    @SuppressWarnings("try")
     private static void dump(FileArtifact artifact, DumpMode mode) {
 
         if (mode == DumpMode.NONE) {
@@ -466,36 +480,13 @@ public final class Main {
         if (mode == DumpMode.FILE_DUMP || artifact.isDirectory()) {
             System.out.println(artifact.dump(mode));
         } else {
-            SecurityManager prevSecManager = System.getSecurityManager();
-            SecurityManager noExitManager = new SecurityManager() {
-                @Override
-                public void checkPermission(Permission perm) {
-                    // allow anything.
-                }
-
-                @Override
-                public void checkPermission(Permission perm, Object context) {
-                    // allow anything.
-                }
-
-                @Override
-                public void checkExit(int status) {
-                    super.checkExit(status);
-                    throw new SecurityException("Captured attempt to exit JVM.");
-                }
-            };
-
             ASTNodeArtifact astArtifact;
 
-            System.setSecurityManager(noExitManager);
-
-            try {
+            try (NoExitGuard guard = NoExitGuard.open()) {
                 astArtifact = new ASTNodeArtifact(artifact);
             } catch (RuntimeException e) {
                 LOG.log(Level.WARNING, e, () -> "Could not parse " + artifact + " to an ASTNodeArtifact.");
                 return;
-            } finally {
-                System.setSecurityManager(prevSecManager);
             }
 
             System.out.println(astArtifact.dump(mode));
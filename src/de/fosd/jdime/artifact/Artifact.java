@@ -126,6 +126,30 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
     private boolean hashValid;
     private String hash;
 
+    private TreeHash structuralHash;
+
+    /*
+     * Bit flags for the properties of the tree rooted in this Artifact that the Matcher uses to choose a matching
+     * algorithm. They are computed bottom-up on first access and reset together with the hashes.
+     */
+
+    private static final byte FLAGS_VALID = 1;
+    private static final byte ORDERED_CHILDREN = 1 << 1;
+    private static final byte UNIQUELY_LABELED_CHILDREN = 1 << 2;
+    private static final byte FULLY_ORDERED_CHILDREN = 1 << 3;
+    private static final byte FULLY_ORDERED = 1 << 4;
+
+    private volatile byte matcherFlags;
+
+    /*
+     * Size, depth and number of leaves of the tree rooted in this Artifact. They are computed bottom-up on first
+     * access and reset together with the hashes. A treeSize of 0 marks them as invalid.
+     */
+
+    private int maxDepth;
+    private int numLeaves;
+    private volatile int treeSize;
+
     /**
      * Constructs a new <code>Artifact</code>.
      *
@@ -466,20 +490,127 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
         return hash;
     }
 
+    /**
+     * Returns a non-cryptographic 128 bit hash of the tree rooted in this {@code Artifact}. Other than
+     * {@link #getTreeHash()} it does not allocate any intermediate {@code String}s and is therefore to be preferred
+     * for finding identical subtrees. The hash is computed bottom-up once and cached until the tree changes.
+     *
+     * @return the structural hash of the tree
+     * @see Artifacts#identicalTrees(Artifact, Artifact)
+     */
+    public TreeHash getStructuralHash() {
+
+        if (structuralHash == null) {
+            structuralHash = TreeHash.of(hashId(), children);
+        }
+
+        return structuralHash;
+    }
+
     /**
      * Returns the {@code String} identifying this {@code Artifact} for the purposes of calculating the tree hash in
-     * {@link #getTreeHash()};
+     * {@link #getTreeHash()} and {@link #getStructuralHash()}.
      *
      * @return the identifying {@code String} to be hashed
      */
     protected abstract String hashId();
 
     /**
-     * Invalidates the hashes of this {@code Artifact} and all its parents.
+     * Returns whether any child of this {@code Artifact} is ordered.
+     *
+     * @return true iff any child of this {@code Artifact} is ordered
+     * @see #isOrdered()
+     */
+    public boolean hasOrderedChildren() {
+        return (matcherFlags() & ORDERED_CHILDREN) != 0;
+    }
+
+    /**
+     * Returns whether this {@code Artifact} has only uniquely labeled children.
+     *
+     * @return true iff all children of this {@code Artifact} have a unique label
+     * @see #getUniqueLabel()
+     */
+    public boolean hasUniquelyLabeledChildren() {
+        return (matcherFlags() & UNIQUELY_LABELED_CHILDREN) != 0;
+    }
+
+    /**
+     * Returns whether the trees rooted in all children of this {@code Artifact} are fully ordered.
+     *
+     * @return true iff all children of this {@code Artifact} are fully ordered
+     * @see #isFullyOrdered()
+     */
+    public boolean hasFullyOrderedChildren() {
+        return (matcherFlags() & FULLY_ORDERED_CHILDREN) != 0;
+    }
+
+    /**
+     * Returns whether the tree rooted in this {@code Artifact} is fully ordered, that is whether all its nodes are
+     * ordered.
+     *
+     * @return true iff the tree rooted in this {@code Artifact} is fully ordered
+     * @see #isOrdered()
+     */
+    public boolean isFullyOrdered() {
+        return (matcherFlags() & FULLY_ORDERED) != 0;
+    }
+
+    /**
+     * Returns the matcher flags of this {@code Artifact}. If they are not valid, they are computed from the flags of
+     * the children which are computed first if necessary. The first call on the root of a tree therefore computes
+     * the flags of all nodes in one bottom-up pass.
+     *
+     * @return the matcher flags
+     */
+    private byte matcherFlags() {
+        byte flags = matcherFlags;
+
+        if ((flags & FLAGS_VALID) != 0) {
+            return flags;
+        }
+
+        boolean orderedChildren = false;
+        boolean uniquelyLabeledChildren = true;
+        boolean fullyOrderedChildren = true;
+
+        for (Artifact<T> child : children) {
+            orderedChildren |= child.isOrdered();
+            uniquelyLabeledChildren &= child.getUniqueLabel().isPresent();
+            fullyOrderedChildren &= (child.matcherFlags() & FULLY_ORDERED) != 0;
+        }
+
+        flags = FLAGS_VALID;
+
+        if (orderedChildren) {
+            flags |= ORDERED_CHILDREN;
+        }
+
+        if (uniquelyLabeledChildren) {
+            flags |= UNIQUELY_LABELED_CHILDREN;
+        }
+
+        if (fullyOrderedChildren) {
+            flags |= FULLY_ORDERED_CHILDREN;
+
+            if (isOrdered()) {
+                flags |= FULLY_ORDERED;
+            }
+        }
+
+        matcherFlags = flags;
+        return flags;
+    }
+
+    /**
+     * Invalidates the hashes, matcher flags and tree metrics of this {@code Artifact} and all its parents.
      */
     protected void invalidateHash() {
         hashValid = false;
         hash = null;
+        structuralHash = null;
+        matcherFlags = 0;
+        treeSize = 0;
 
         if (parent != null) {
             parent.invalidateHash();
@@ -570,7 +701,18 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
      * @return the maximum depth
      */
     public int getMaxDepth() {
-        return 1 + children.parallelStream().map(T::getMaxDepth).max(Integer::compare).orElse(0);
+        treeMetrics();
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of leaves of the tree rooted in this <code>Artifact</code>. A leaf counts itself.
+     *
+     * @return the number of leaves
+     */
+    public int getNumLeaves() {
+        treeMetrics();
+        return numLeaves;
     }
 
     /**
@@ -579,13 +721,7 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
      * @return size of subtree
      */
     public int getSubtreeSize() {
-        int size = getNumChildren();
-
-        for (int i = 0; i < getNumChildren(); i++) {
-            size += getChild(i).getSubtreeSize();
-        }
-
-        return size;
+        return treeMetrics() - 1;
     }
 
     /**
@@ -594,7 +730,40 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
      * @return size of tree
      */
     public int getTreeSize() {
-        return getSubtreeSize() + 1;
+        return treeMetrics();
+    }
+
+    /**
+     * Returns the size of the tree rooted in this {@code Artifact} after computing its size, depth and number of
+     * leaves if they are not valid. They are computed from the metrics of the children which are computed first if
+     * necessary. The first call on the root of a tree therefore computes the metrics of all nodes in one bottom-up
+     * pass.
+     *
+     * @return the size of the tree
+     */
+    private int treeMetrics() {
+        int size = treeSize;
+
+        if (size != 0) {
+            return size;
+        }
+
+        int depth = 0;
+        int leaves = 0;
+
+        size = 1;
+
+        for (Artifact<T> child : children) {
+            size += child.treeMetrics();
+            depth = Math.max(depth, child.maxDepth);
+            leaves += child.numLeaves;
+        }
+
+        maxDepth = depth + 1;
+        numLeaves = children.isEmpty() ? 1 : leaves;
+        treeSize = size; // publishes maxDepth and numLeaves
+
+        return size;
     }
 
     /**
@@ -617,7 +786,7 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
 
         T match = getMatching(revision).getMatchingArtifact(this);
 
-        return getTreeSize() != match.getTreeSize() || !getTreeHash().equals(match.getTreeHash());
+        return getTreeSize() != match.getTreeSize() || !getStructuralHash().equals(match.getStructuralHash());
 //                                                    || Artifacts.bfsStream(self()).anyMatch(a -> {
 //            // We use Artifact#hashId here since it is implemented for SemiStructuredArtifacts using the pretty printed content.
 //            // This ensures that matched SemiStructuredArtifacts are detected as changes if their contents do not match.
@@ -792,6 +961,36 @@ public abstract class Artifact<T extends Artifact<T>> implements Comparable<T>,
      */
     public abstract boolean categoryMatches(T other);
 
+    /**
+     * Returns a key partitioning <code>Artifact</code>s with respect to {@link #matches(Artifact)}. If two
+     * <code>Artifact</code>s match, their keys are equal. <code>Artifact</code>s with different keys never match.
+     * This enables matchers to group candidates instead of comparing every pair.
+     *
+     * @return the matching key of this <code>Artifact</code>
+     */
+    public abstract String getMatchingKey();
+
+    /**
+     * Returns the id of the {@link #getMatchingKey() matching key} of this <code>Artifact</code> in the dictionary
+     * returned by {@link #getMatchingKeyDictionary()}. <code>Artifact</code>s whose keys are interned in the same
+     * dictionary have equal ids iff their keys are equal. By default, matching keys are not interned.
+     *
+     * @return the id of the matching key or -1 if it is not interned
+     */
+    public int getMatchingKeyId() {
+        return -1;
+    }
+
+    /**
+     * Returns the dictionary the {@link #getMatchingKey() matching key} of this <code>Artifact</code> is interned in.
+     *
+     * @return the dictionary or <code>null</code> if the matching key is not interned
+     * @see #getMatchingKeyId()
+     */
+    public Object getMatchingKeyDictionary() {
+        return null;
+    }
+
     /**
      * Performs a merge on the provided merge triple.
      * This method selects the <code>MergeStrategy</code> and triggers the merge.
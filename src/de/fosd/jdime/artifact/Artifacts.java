@@ -222,6 +222,44 @@ public final class Artifacts {
         return () -> new DFSIterator<>(treeRoot);
     }
 
+    /**
+     * Determines whether the trees rooted in {@code left} and {@code right} are identical, that is whether they have
+     * the same shape and all pairs of corresponding nodes have equal {@link Artifact#hashId() hash ids}. This is the
+     * exact (linear time) check to be used for verifying that two trees with equal
+     * {@link Artifact#getStructuralHash() structural hashes} do not merely collide.
+     *
+     * @param left
+     *         the root of the left tree
+     * @param right
+     *         the root of the right tree
+     * @param <T>
+     *         the {@code Artifact} type
+     * @return true iff the trees are identical
+     */
+    public static <T extends Artifact<T>> boolean identicalTrees(T left, T right) {
+        Deque<T> lWait = new ArrayDeque<>();
+        Deque<T> rWait = new ArrayDeque<>();
+
+        lWait.push(left);
+        rWait.push(right);
+
+        while (!lWait.isEmpty()) {
+            T l = lWait.pop();
+            T r = rWait.pop();
+
+            if (l.getNumChildren() != r.getNumChildren() || !l.hashId().equals(r.hashId())) {
+                return false;
+            }
+
+            for (int i = 0; i < l.getNumChildren(); i++) {
+                lWait.push(l.getChild(i));
+                rWait.push(r.getChild(i));
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Copies the given tree of {@link Artifact Artifacts}.
      *
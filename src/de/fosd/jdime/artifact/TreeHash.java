@@ -0,0 +1,156 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact;
+
+/**
+ * A 128 bit non-cryptographic hash of an {@link Artifact} tree. {@link TreeHash TreeHashes} are computed bottom-up
+ * from the {@link Artifact#hashId()} of every node and the {@link TreeHash TreeHashes} of its children in order.
+ * Equal trees always have equal {@link TreeHash TreeHashes}, different trees have equal ones only with negligible
+ * probability. Users that can not tolerate a collision have to verify equal hashes using
+ * {@link Artifacts#identicalTrees(Artifact, Artifact)}.
+ *
+ * @see Artifact#getStructuralHash()
+ */
+public final class TreeHash {
+
+    private static final long HIGH_SEED = 0x9E3779B97F4A7C15L;
+    private static final long LOW_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long HIGH_PRIME = 0x100000001B3L;
+    private static final long LOW_PRIME = 0x87C37B91114253D5L;
+
+    private final long high;
+    private final long low;
+
+    /**
+     * Constructs a new {@link TreeHash} from its two halves.
+     *
+     * @param high
+     *         the high 64 bits
+     * @param low
+     *         the low 64 bits
+     */
+    private TreeHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Computes the {@link TreeHash} of a node with the given identifying {@code String} and children.
+     *
+     * @param hashId
+     *         the {@link Artifact#hashId()} of the node
+     * @param children
+     *         the children of the node
+     * @return the {@link TreeHash} of the tree rooted in the node
+     */
+    static TreeHash of(String hashId, Iterable<? extends Artifact<?>> children) {
+        long h = HIGH_SEED;
+        long l = LOW_SEED;
+
+        for (int i = 0; i < hashId.length(); i++) {
+            char c = hashId.charAt(i);
+
+            h = (h ^ c) * HIGH_PRIME;
+            l = Long.rotateLeft(l ^ c, 31) * LOW_PRIME;
+        }
+
+        h = mix(h ^ hashId.length());
+        l = mix(l + hashId.length());
+
+        int numChildren = 0;
+
+        for (Artifact<?> child : children) {
+            TreeHash childHash = child.getStructuralHash();
+
+            h = mix(h * HIGH_PRIME + childHash.high);
+            l = mix(Long.rotateLeft(l, 27) ^ (childHash.low * LOW_PRIME));
+            numChildren++;
+        }
+
+        return new TreeHash(mix(h ^ numChildren), mix(l + numChildren * LOW_PRIME));
+    }
+
+    /**
+     * The finalization step of MurmurHash3. Spreads every input bit over all bits of the result.
+     *
+     * @param k
+     *         the value to mix
+     * @return the mixed value
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+
+        return k;
+    }
+
+    /**
+     * Returns the high 64 bits of this {@link TreeHash}.
+     *
+     * @return the high 64 bits
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns the low 64 bits of this {@link TreeHash}.
+     *
+     * @return the low 64 bits
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TreeHash treeHash = (TreeHash) o;
+        return high == treeHash.high && low == treeHash.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -70,6 +70,15 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
 
     private static final Logger LOG = Logger.getLogger(ASTNodeArtifact.class.getCanonicalName());
 
+    /**
+     * ExtendJ keeps the state of attribute evaluation, which includes the rewrites performed when the children of an
+     * <code>ASTNode</code> are accessed, in a single static object shared by all ASTs. Code that may trigger
+     * attribute evaluation must hold this lock so that ASTs can be built and printed by multiple threads. Only lexing
+     * and parsing the source code may run without the lock, adding the parsed <code>CompilationUnit</code> to its
+     * <code>Program</code> evaluates attributes as well.
+     */
+    static final Object EXTENDJ_LOCK = new Object();
+
     /**
      * Parses the content of the given <code>FileArtifact</code> to an AST. If the <code>artifact</code> is empty,
      * an empty <code>ASTNode</code> obtained via {@link ASTNode#ASTNode()} will be returned.
@@ -78,15 +87,28 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      * @return the root of the resulting AST
      */
     private static ASTNode<?> parse(FileArtifact artifact) {
+        return parse(artifact.getFile().getPath(), artifact.getContent());
+    }
+
+    /**
+     * Parses the given Java source code to an AST. The code is parsed in memory, no files are read or written. If the
+     * <code>content</code> is empty, an empty <code>ASTNode</code> obtained via {@link ASTNode#ASTNode()} will be
+     * returned.
+     *
+     * @param pathName the path name to report for the source code
+     * @param content  the source code to parse
+     * @return the root of the resulting AST
+     */
+    private static ASTNode<?> parse(String pathName, CharSequence content) {
         ASTNode<?> astNode;
 
-        if (artifact.isEmpty()) {
+        if (content.length() == 0) {
             astNode = new ASTNode<>();
         } else {
             Program p = new Program();
 
             try {
-                p.addSourceFile(artifact.getFile().getPath());
+                SourceContentPath.addSource(p, pathName, content);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -102,6 +124,20 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      */
     protected ASTNode<?> astnode;
 
+    /**
+     * The number of <code>ASTNodeArtifact</code>s encapsulating {@link #astnode}. Copies share the
+     * <code>ASTNode</code> of the original and this counter with it. As long as there is more than one owner, neither
+     * the original nor its copies modify the <code>ASTNode</code>, {@link #rebuildAST()} clones it instead. The counter
+     * is <code>null</code> as long as the <code>ASTNodeArtifact</code> was not copied.
+     */
+    private AtomicInteger astnodeOwners;
+
+    /**
+     * The interned matching representation of the {@link #astnode}. Computed when the tree is constructed from a
+     * parsed AST and lazily for all other <code>ASTNodeArtifact</code>s.
+     */
+    private LabelDictionary.Label label;
+
     /**
      * Constructs a new <code>ASTNodeArtifact</code> (tree) representing the AST of the code in <code>artifact</code>.
      * All members of the tree will be in the same <code>Revision</code> as <code>artifact</code>.
@@ -109,7 +145,45 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      * @param artifact the <code>FileArtifact</code> containing the code to be parsed
      */
     public ASTNodeArtifact(FileArtifact artifact) {
-        this(artifact.getRevision(), new AtomicInteger()::getAndIncrement, parse(artifact));
+        this(artifact, new LabelDictionary());
+    }
+
+    /**
+     * Constructs a new <code>ASTNodeArtifact</code> (tree) representing the AST of the code in <code>artifact</code>.
+     * All members of the tree will be in the same <code>Revision</code> as <code>artifact</code>. The matching
+     * representations of all nodes are interned in the given <code>LabelDictionary</code>. Trees that are to be
+     * matched against each other should share one dictionary.
+     *
+     * @param artifact the <code>FileArtifact</code> containing the code to be parsed
+     * @param labels   the <code>LabelDictionary</code> to intern the matching representations in
+     */
+    public ASTNodeArtifact(FileArtifact artifact, LabelDictionary labels) {
+        this(artifact.getRevision(), new AtomicInteger()::getAndIncrement, parse(artifact), labels);
+    }
+
+    /**
+     * Constructs a new <code>ASTNodeArtifact</code> (tree) representing the AST of the given Java source code. All
+     * members of the tree will be in the given <code>Revision</code>. The code is parsed in memory.
+     *
+     * @param revision the <code>Revision</code> for the <code>ASTNodeArtifact</code>s
+     * @param pathName the path name to report for the source code, e.g. in ExtendJ error messages
+     * @param content  the source code to parse
+     */
+    public ASTNodeArtifact(Revision revision, String pathName, CharSequence content) {
+        this(revision, new AtomicInteger()::getAndIncrement, parse(pathName, content), new LabelDictionary());
+    }
+
+    /**
+     * Constructs a new <code>ASTNodeArtifact</code> (tree) encapsulating the given <code>ASTNode</code> that was
+     * parsed before.
+     *
+     * @param revision the <code>Revision</code> for this <code>ASTNodeArtifact</code>
+     * @param astNode  the <code>ASTNode</code> to encapsulate
+     * @param labels   the <code>LabelDictionary</code> to intern the matching representations in
+     * @see ParseCache
+     */
+    ASTNodeArtifact(Revision revision, ASTNode<?> astNode, LabelDictionary labels) {
+        this(revision, new AtomicInteger()::getAndIncrement, astNode, labels);
     }
 
     /**
@@ -119,7 +193,7 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      * @param revision the <code>Revision</code> for this <code>ASTNodeArtifact</code>
      */
     protected ASTNodeArtifact(Revision revision) {
-        this(revision, new AtomicInteger()::getAndIncrement, new ASTNode<>());
+        this(revision, new AtomicInteger()::getAndIncrement, new ASTNode<>(), null);
     }
 
     /**
@@ -130,7 +204,7 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      * @param astNode  the <code>ASTNode</code> to encapsulate
      */
     private ASTNodeArtifact(Revision revision, ASTNode<?> astNode) {
-        this(revision, new AtomicInteger()::getAndIncrement, astNode);
+        this(revision, new AtomicInteger()::getAndIncrement, astNode, null);
     }
 
     /**
@@ -140,16 +214,26 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
      * @param revision the <code>Revision</code> for this <code>ASTNodeArtifact</code>
      * @param number   supplies first the number for this artifact and then in DFS order the number for its children
      * @param astNode  the <code>ASTNode</code> to encapsulate
+     * @param labels   the <code>LabelDictionary</code> to intern the matching representations in, if this is
+     *                 <code>null</code> the labels are computed lazily
      */
-    private ASTNodeArtifact(Revision revision, Supplier<Integer> number, ASTNode<?> astNode) {
+    private ASTNodeArtifact(Revision revision, Supplier<Integer> number, ASTNode<?> astNode, LabelDictionary labels) {
         super(revision, number.get());
 
         this.astnode = astNode;
-        initializeChildren(number);
+
+        synchronized (EXTENDJ_LOCK) {
+            initializeChildren(number, labels);
+        }
+
+        if (labels != null) {
+            this.label = labels.intern(astnode);
+        }
     }
 
     /**
-     * Copies the given {@link Artifact}.
+     * Copies the given {@link Artifact}. The copy shares the encapsulated <code>ASTNode</code> with
+     * <code>toCopy</code>, it is cloned only if it has to be modified when the AST is rebuilt.
      *
      * @param toCopy to {@link Artifact} to copy
      * @see #copy()
@@ -157,23 +241,111 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
     protected ASTNodeArtifact(ASTNodeArtifact toCopy) {
         super(toCopy);
 
+        synchronized (toCopy) {
+
+            if (toCopy.astnodeOwners == null) {
+                toCopy.astnodeOwners = new AtomicInteger(1);
+            }
+
+            this.astnode = toCopy.astnode;
+            this.astnodeOwners = toCopy.astnodeOwners;
+            this.astnodeOwners.incrementAndGet();
+        }
+
+        this.label = toCopy.label;
+    }
+
+    /**
+     * Replaces the encapsulated <code>ASTNode</code>. The label of this <code>ASTNodeArtifact</code> will be computed
+     * anew from <code>astnode</code>.
+     *
+     * @param astnode the new <code>ASTNode</code> to encapsulate
+     */
+    protected final void setASTNode(ASTNode<?> astnode) {
+        releaseASTNode();
+
+        this.astnode = astnode;
+        this.label = null;
+    }
+
+    /**
+     * Returns the label of this <code>ASTNodeArtifact</code>, computing it if necessary.
+     *
+     * @return the label
+     */
+    private LabelDictionary.Label label() {
+
+        if (label == null) {
+            label = LabelDictionary.of(astnode);
+        }
+
+        return label;
+    }
+
+    /**
+     * Returns whether {@link #astnode} is encapsulated by other <code>ASTNodeArtifact</code>s as well.
+     *
+     * @return true iff the <code>ASTNode</code> must not be modified
+     */
+    private boolean isSharedASTNode() {
+        AtomicInteger owners = astnodeOwners;
+        return owners != null && owners.get() > 1;
+    }
+
+    /**
+     * Replaces a shared {@link #astnode} with a clone that is owned by this <code>ASTNodeArtifact</code>. The clone
+     * is shallow, its children are still the ones of the shared <code>ASTNode</code>.
+     */
+    protected final void ownASTNode() {
+
+        if (!isSharedASTNode()) {
+            return;
+        }
+
         try {
-            this.astnode = toCopy.astnode.clone();
+            ASTNode<?> clone = astnode.clone();
+
+            releaseASTNode();
+            this.astnode = clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Removes this <code>ASTNodeArtifact</code> from the owners of {@link #astnode} before it is replaced.
+     */
+    private void releaseASTNode() {
+
+        synchronized (this) {
+
+            if (astnodeOwners != null) {
+                astnodeOwners.decrementAndGet();
+                astnodeOwners = null;
+            }
+        }
+    }
+
     /**
      * Adds {@code ASTNodeArtifact} children to this artifact encapsulating the children of the {@link #astnode}.
+     * Children that ExtendJ rewrites on access (e.g. a <code>ParseName</code> that becomes a <code>VarAccess</code>)
+     * are replaced with their rewritten form in the {@link #astnode} so that it contains exactly the
+     * <code>ASTNode</code>s encapsulated by the children of this artifact.
      *
      * @param number supplies the numbers for the added children
+     * @param labels the <code>LabelDictionary</code> to intern the labels of the children in, may be <code>null</code>
      */
-    private void initializeChildren(Supplier<Integer> number) {
+    private void initializeChildren(Supplier<Integer> number, LabelDictionary labels) {
         List<ASTNodeArtifact> children = new ArtifactList<>();
 
         for (int i = 0; i < astnode.getNumChild(); i++) {
-            ASTNodeArtifact child = new ASTNodeArtifact(getRevision(), number, astnode.getChild(i));
+            ASTNode<?> childNode = astnode.getChild(i);
+
+            if (astnode.getChildNoTransform(i) != childNode) {
+                astnode.setChild(childNode, i);
+            }
+
+            ASTNodeArtifact child = new ASTNodeArtifact(getRevision(), number, childNode, labels);
 
             child.setParent(this);
             children.add(child);
@@ -233,19 +405,22 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
     public String prettyPrint() {
         assert (astnode != null);
 
-        try {
-            rebuildAST();
-            astnode.flushTreeCache();
-        } catch (AbortException e) {
-            throw e;
-        } catch (Exception e) {
-            LOG.severe("Exception caught during prettyPrint(): " + e);
-            LOG.log(Level.SEVERE, e.getMessage(), e);
-        }
+        synchronized (EXTENDJ_LOCK) {
 
-        LOG.finest(() -> Artifacts.root(this).dump(PLAINTEXT_TREE));
+            try {
+                rebuildAST();
+                astnode.flushTreeCache();
+            } catch (AbortException e) {
+                throw e;
+            } catch (Exception e) {
+                LOG.severe("Exception caught during prettyPrint(): " + e);
+                LOG.log(Level.SEVERE, e.getMessage(), e);
+            }
 
-        return astnode.prettyPrint();
+            LOG.finest(() -> Artifacts.root(this).dump(PLAINTEXT_TREE));
+
+            return astnode.prettyPrint();
+        }
     }
 
     @Override
@@ -260,7 +435,7 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
 
     @Override
     protected String hashId() {
-        return astnode.getMatchingRepresentation();
+        return label().getRepresentation();
     }
 
     @Override
@@ -368,7 +543,7 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
         boolean hasLabel = ImportDecl.class.isAssignableFrom(astnode.getClass())
                 || Literal.class.isAssignableFrom(astnode.getClass());
 
-        return hasLabel ? Optional.of(() -> astnode.getMatchingRepresentation()) : Optional.empty();
+        return hasLabel ? Optional.of(() -> label().getRepresentation()) : Optional.empty();
     }
 
     @Override
@@ -401,12 +576,12 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
         LOG.finest(() -> "match(" + getId() + ", " + other.getId() + ")");
 
         LOG.finest(() -> {
-            String matchingRep = astnode.getMatchingRepresentation();
-            String otherMatchingRep = other.astnode.getMatchingRepresentation();
+            String matchingRep = label().getRepresentation();
+            String otherMatchingRep = other.label().getRepresentation();
             return String.format("Try Matching: {%s} and {%s}", matchingRep, otherMatchingRep);
         });
 
-        return astnode.matches(other.astnode);
+        return label().matches(other.label());
     }
 
     @Override
@@ -414,6 +589,21 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
         return astnode.getClass().equals(other.astnode.getClass());
     }
 
+    @Override
+    public final String getMatchingKey() {
+        return label().getKey();
+    }
+
+    @Override
+    public final int getMatchingKeyId() {
+        return label().getId();
+    }
+
+    @Override
+    public final LabelDictionary getMatchingKeyDictionary() {
+        return label().getDictionary();
+    }
+
     @Override
     public void merge(MergeOperation<ASTNodeArtifact> operation, MergeContext context) {
         Objects.requireNonNull(operation, "operation must not be null!");
@@ -496,12 +686,29 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
     }
 
     /**
-     * Rebuild the encapsulated ASTNode tree top down. This should be only
-     * called at the root node
+     * Rebuild the encapsulated ASTNode tree. This should be only
+     * called at the root node.
+     * <p>
+     * The children are rebuilt first. A node whose <code>ASTNode</code> is shared with other nodes keeps it if it is
+     * neither a conflict nor a choice node and its children still encapsulate exactly the children of the shared
+     * <code>ASTNode</code>. Otherwise, the shared <code>ASTNode</code> is cloned before it is modified. Since setting
+     * the children of an <code>ASTNode</code> sets their parent, the shared <code>ASTNode</code>s of the children are
+     * cloned as well. Only the spines leading to modified parts of the tree and their children are therefore cloned,
+     * the <code>ASTNode</code>s of the trees the nodes were copied from are never modified.
      */
     private void rebuildAST() {
         LOG.finest(() -> String.format("%s.rebuildAST()", getId()));
 
+        for (int i = 0; i < getNumChildren(); i++) {
+            getChild(i).rebuildAST();
+        }
+
+        if (isSharedASTNode() && !isConflict() && !isChoice() && encapsulatesChildren()) {
+            return;
+        }
+
+        ownASTNode();
+
         if (isConflict()) {
             astnode.isConflict = true;
             astnode.jdimeId = getId();
@@ -549,9 +756,10 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
 
         for (int i = 0; i < getNumChildren(); i++) {
             ASTNodeArtifact child = getChild(i);
+
+            child.ownASTNode();
             newChildren[i] = child.astnode;
             newChildren[i].setParent(astnode);
-            child.rebuildAST();
         }
 
         astnode.jdimeId = getId();
@@ -566,9 +774,34 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
         }
     }
 
+    /**
+     * Returns whether the children of this <code>ASTNodeArtifact</code> encapsulate exactly the children of
+     * {@link #astnode} in the same order and whether {@link #astnode} is still their parent. The parent of an
+     * <code>ASTNode</code> may have been set by another tree the encapsulating <code>ASTNodeArtifact</code> was added
+     * to.
+     *
+     * @return true iff the children of the encapsulated <code>ASTNode</code> do not have to be replaced
+     */
+    private boolean encapsulatesChildren() {
+
+        if (getNumChildren() != astnode.getNumChildNoTransform()) {
+            return false;
+        }
+
+        for (int i = 0; i < getNumChildren(); i++) {
+            ASTNodeArtifact child = getChild(i);
+
+            if (child.astnode != astnode.getChildNoTransform(i) || child.astnode.getParent() != astnode) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public final String toString() {
-        return astnode.getMatchingRepresentation();
+        return label().getRepresentation();
     }
 
     /**
@@ -961,8 +1194,10 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
     }
 
     public boolean eq(ASTNodeArtifact that) {
-        return astnode.dumpTree().equals(that.astnode.dumpTree()) ||
-                astnode.prettyPrint().equals(that.astnode.prettyPrint());
+        synchronized (EXTENDJ_LOCK) {
+            return astnode.dumpTree().equals(that.astnode.dumpTree()) ||
+                    astnode.prettyPrint().equals(that.astnode.prettyPrint());
+        }
     }
 
     public String dumpString() {
@@ -970,6 +1205,8 @@ public class ASTNodeArtifact extends Artifact<ASTNodeArtifact> {
     }
 
     public String dumpTree() {
-        return astnode.dumpTree();
+        synchronized (EXTENDJ_LOCK) {
+            return astnode.dumpTree();
+        }
     }
 }
@@ -0,0 +1,366 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.extendj.ast.ASTNode;
+import org.extendj.ast.ClassSource;
+import org.extendj.ast.CompilationUnit;
+import org.extendj.ast.Program;
+
+/**
+ * Stores the <code>CompilationUnit</code>s of a parsed <code>Program</code> in a compact binary form and rebuilds
+ * them without lexing, parsing or evaluating rewrites. The form contains the state the parser and the rewrites leave
+ * in the nodes of the AST: the class, the source positions and the children of every node as well as its tokens and
+ * other fields of primitive or <code>String</code> type. The attribute caches JastAdd generates are not stored, they
+ * are recomputed on demand as in a copy obtained from {@link ASTNode#treeCopyNoTransform()}.
+ * <p>
+ * The fields to store are determined by reflection on the ExtendJ node classes. ASTs containing nodes that refer to
+ * other objects which can not be rebuilt (e.g. bound accesses referring to declarations in other trees) are rejected.
+ * Since the form depends on the ExtendJ classes, the reader must be given the same version string as the writer.
+ */
+final class ASTNodeCodec {
+
+    private static final int MAGIC = 0x414d4153;
+
+    private static final String NODE_PACKAGE = ASTNode.class.getPackage().getName() + '.';
+
+    /**
+     * Matches the names of the fields JastAdd generates to cache attribute values and collection contributions.
+     */
+    private static final Pattern CACHE_FIELD = Pattern.compile(
+            ".*_(computed|value|values|visited|proxy|initialized|cycle)|contributorMap_.*");
+
+    /**
+     * The fields of a node class as they are handled by the {@link ASTNodeCodec}.
+     */
+    private static final class Layout {
+
+        /**
+         * The fields that are stored and restored, ordered by name.
+         */
+        private final Field[] stored;
+
+        /**
+         * The reference fields that must be <code>null</code> or empty collections for a node to be stored.
+         */
+        private final Field[] checked;
+
+        private Layout(Class<?> nodeClass) {
+            List<Field> stored = new ArrayList<>();
+            List<Field> checked = new ArrayList<>();
+
+            for (Class<?> c = nodeClass; c != ASTNode.class; c = c.getSuperclass()) {
+
+                for (Field field : c.getDeclaredFields()) {
+                    Class<?> type = field.getType();
+
+                    if (Modifier.isStatic(field.getModifiers()) || CACHE_FIELD.matcher(field.getName()).matches()) {
+                        continue;
+                    }
+
+                    if (type == ClassSource.class || type == AtomicInteger.class) {
+                        continue; // restored by the ParseCache or initialized by the constructor
+                    }
+
+                    field.setAccessible(true);
+
+                    if (type == String.class || type == boolean.class || type == int.class || type == long.class) {
+                        stored.add(field);
+                    } else {
+                        checked.add(field);
+                    }
+                }
+            }
+
+            stored.sort(Comparator.comparing(Field::getDeclaringClass, Comparator.comparing(Class::getName))
+                                  .thenComparing(Field::getName));
+
+            this.stored = stored.toArray(new Field[stored.size()]);
+            this.checked = checked.toArray(new Field[checked.size()]);
+        }
+    }
+
+    private static final Map<Class<?>, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    /**
+     * Utility class.
+     */
+    private ASTNodeCodec() {}
+
+    /**
+     * Writes the <code>CompilationUnit</code>s of the given <code>program</code> to <code>out</code>. The
+     * <code>program</code> must not be modified concurrently.
+     *
+     * @param program
+     *         the <code>Program</code> whose <code>CompilationUnit</code>s are to be written
+     * @param version
+     *         identifies the versions of the classes of the written ASTs
+     * @param out
+     *         the stream to write to
+     * @throws NotSerializableException
+     *         if the AST contains nodes that can not be stored
+     * @throws IOException
+     *         if writing to <code>out</code> fails
+     */
+    static void write(Program program, String version, DataOutputStream out) throws IOException {
+        Map<Class<?>, Integer> classes = new HashMap<>();
+
+        out.writeInt(MAGIC);
+        out.writeUTF(version);
+        out.writeInt(program.getNumCompilationUnitNoTransform());
+
+        for (CompilationUnit unit : program.getCompilationUnitListNoTransform()) {
+            writeNode(unit, classes, out);
+        }
+    }
+
+    /**
+     * Reads <code>CompilationUnit</code>s written by {@link #write(Program, String, DataOutputStream)} and adds them
+     * to a new <code>Program</code>. Lengths read from <code>in</code> are not used to allocate memory up front,
+     * corrupt input therefore ends in an <code>IOException</code>. The nodes are read recursively, a very deep AST may
+     * cause a <code>StackOverflowError</code>.
+     *
+     * @param version
+     *         the version that must have been given when the <code>CompilationUnit</code>s were written
+     * @param in
+     *         the stream to read from
+     * @return the new <code>Program</code>
+     * @throws InvalidClassException
+     *         if <code>in</code> was written for a different version
+     * @throws IOException
+     *         if reading from <code>in</code> fails or its content is not a stored AST
+     */
+    static Program read(String version, DataInputStream in) throws IOException {
+        List<Class<?>> classes = new ArrayList<>();
+
+        if (in.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a stored AST.");
+        }
+
+        String written = in.readUTF();
+
+        if (!version.equals(written)) {
+            throw new InvalidClassException("The AST was stored by version " + written);
+        }
+
+        Program program = new Program();
+        int numUnits = in.readInt();
+
+        for (int i = 0; i < numUnits; i++) {
+            ASTNode<?> unit = readNode(classes, in);
+
+            if (!(unit instanceof CompilationUnit)) {
+                throw new StreamCorruptedException("Expected a CompilationUnit but got " + unit);
+            }
+
+            program.addCompilationUnit((CompilationUnit) unit);
+        }
+
+        return program;
+    }
+
+    private static void writeNode(ASTNode<?> node, Map<Class<?>, Integer> classes, DataOutputStream out)
+            throws IOException {
+
+        if (node == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        Class<?> nodeClass = node.getClass();
+        Integer index = classes.get(nodeClass);
+
+        if (index == null) {
+            out.writeInt(classes.size());
+            out.writeUTF(nodeClass.getName());
+            classes.put(nodeClass, classes.size());
+        } else {
+            out.writeInt(index);
+        }
+
+        Layout layout = LAYOUTS.computeIfAbsent(nodeClass, Layout::new);
+
+        try {
+            for (Field field : layout.checked) {
+                Object value = field.get(node);
+
+                if (value != null && !(value instanceof Collection && ((Collection<?>) value).isEmpty())) {
+                    throw new NotSerializableException(nodeClass.getName() + '.' + field.getName());
+                }
+            }
+
+            out.writeInt(node.getStart());
+            out.writeInt(node.getEnd());
+
+            for (Field field : layout.stored) {
+                Class<?> type = field.getType();
+
+                if (type == String.class) {
+                    writeString((String) field.get(node), out);
+                } else if (type == boolean.class) {
+                    out.writeBoolean(field.getBoolean(node));
+                } else if (type == int.class) {
+                    out.writeInt(field.getInt(node));
+                } else {
+                    out.writeLong(field.getLong(node));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+
+        int numChildren = node.getNumChildNoTransform();
+        out.writeInt(numChildren);
+
+        for (int i = 0; i < numChildren; i++) {
+            writeNode(node.getChildNoTransform(i), classes, out);
+        }
+    }
+
+    private static ASTNode<?> readNode(List<Class<?>> classes, DataInputStream in) throws IOException {
+        int index = in.readInt();
+
+        if (index == -1) {
+            return null;
+        }
+
+        if (index == classes.size()) {
+            classes.add(nodeClass(in.readUTF()));
+        } else if (index < 0 || index > classes.size()) {
+            throw new StreamCorruptedException("Invalid class index " + index);
+        }
+
+        Class<?> nodeClass = classes.get(index);
+        Layout layout = LAYOUTS.computeIfAbsent(nodeClass, Layout::new);
+        ASTNode<?> node;
+
+        try {
+            node = (ASTNode<?>) nodeClass.getDeclaredConstructor().newInstance();
+            node.setStart(in.readInt());
+            node.setEnd(in.readInt());
+
+            for (Field field : layout.stored) {
+                Class<?> type = field.getType();
+
+                if (type == String.class) {
+                    field.set(node, readString(in));
+                } else if (type == boolean.class) {
+                    field.setBoolean(node, in.readBoolean());
+                } else if (type == int.class) {
+                    field.setInt(node, in.readInt());
+                } else {
+                    field.setLong(node, in.readLong());
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+
+        int numChildren = in.readInt();
+
+        for (int i = 0; i < numChildren; i++) {
+            ASTNode<?> child = readNode(classes, in);
+
+            if (child != null) {
+                node.setChild(child, i);
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Loads the ExtendJ node class with the given name.
+     *
+     * @param name
+     *         the name of the class
+     * @return the class
+     * @throws InvalidClassException
+     *         if there is no such class or it is not a concrete ExtendJ node class
+     */
+    private static Class<?> nodeClass(String name) throws InvalidClassException {
+        Class<?> nodeClass;
+
+        try {
+            nodeClass = name.startsWith(NODE_PACKAGE) ? Class.forName(name, false, ASTNode.class.getClassLoader()) : null;
+        } catch (ClassNotFoundException e) {
+            nodeClass = null;
+        }
+
+        if (nodeClass == null || !ASTNode.class.isAssignableFrom(nodeClass) || Modifier.isAbstract(nodeClass.getModifiers())) {
+            throw new InvalidClassException(name, "Not an ExtendJ node class.");
+        }
+
+        return nodeClass;
+    }
+
+    private static void writeString(String s, DataOutputStream out) throws IOException {
+
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(s.length());
+            out.writeChars(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        } else if (length < 0) {
+            throw new StreamCorruptedException("Invalid string length " + length);
+        }
+
+        StringBuilder chars = new StringBuilder(Math.min(length, 1024)); // a corrupt length ends in an EOFException
+
+        for (int i = 0; i < length; i++) {
+            chars.append(in.readChar());
+        }
+
+        return chars.toString();
+    }
+}
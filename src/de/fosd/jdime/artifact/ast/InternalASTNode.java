@@ -60,7 +60,9 @@ public class InternalASTNode extends ASTNodeArtifact {
 
     @Override
     public boolean eq(ASTNodeArtifact that) {
-        return code.equals(that.astnode.prettyPrint());
+        synchronized (EXTENDJ_LOCK) {
+            return code.equals(that.astnode.prettyPrint());
+        }
     }
 
     @Override
@@ -0,0 +1,181 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.extendj.ast.ASTNode;
+
+/**
+ * Interns the matching representations of the <code>ASTNode</code>s encapsulated by {@link ASTNodeArtifact}s. Every
+ * distinct pair of <code>ASTNode</code> class and {@link ASTNode#getMatchingRepresentation() matching representation}
+ * is mapped to one {@link Label} with a dense id. The representation of a node is therefore computed only once, when
+ * its {@link ASTNodeArtifact} is constructed, and two nodes whose labels stem from the same dictionary match iff their
+ * labels are the same object.
+ * <p>
+ * One dictionary is meant to be shared by the trees of one merge scenario. It may be used by multiple threads.
+ */
+public final class LabelDictionary {
+
+    /**
+     * The interned matching representation of an <code>ASTNode</code>.
+     */
+    static final class Label {
+
+        private final LabelDictionary dictionary;
+        private final int id;
+        private final String key;
+        private final String representation;
+
+        private Label(LabelDictionary dictionary, int id, String key, String representation) {
+            this.dictionary = dictionary;
+            this.id = id;
+            this.key = key;
+            this.representation = representation;
+        }
+
+        /**
+         * Returns the dictionary this label belongs to.
+         *
+         * @return the dictionary or <code>null</code> if the label does not belong to a dictionary
+         */
+        LabelDictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Returns the id of this label, ids are dense within a dictionary. Labels that do not belong to a dictionary
+         * have the id -1.
+         *
+         * @return the id
+         */
+        int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the matching key consisting of the binary class name and the matching representation.
+         *
+         * @return the matching key
+         * @see ASTNodeArtifact#getMatchingKey()
+         */
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the matching representation.
+         *
+         * @return the matching representation
+         */
+        String getRepresentation() {
+            return representation;
+        }
+
+        /**
+         * Returns whether the nodes labeled with this and the <code>other</code> label match.
+         *
+         * @param other
+         *         the other label
+         * @return true iff the labels represent the same class and matching representation
+         */
+        boolean matches(Label other) {
+
+            if (this == other) {
+                return true;
+            }
+
+            if (dictionary != null && dictionary == other.dictionary) {
+                return false;
+            }
+
+            return key.equals(other.key);
+        }
+    }
+
+    private final Map<String, Label> labels;
+    private final AtomicInteger nextId;
+
+    /**
+     * Constructs a new empty {@link LabelDictionary}.
+     */
+    public LabelDictionary() {
+        this.labels = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Returns the label of the given <code>node</code>. A new label is added to the dictionary if necessary.
+     *
+     * @param node
+     *         the node to label
+     * @return the label of the node
+     */
+    Label intern(ASTNode<?> node) {
+        String representation = node.getMatchingRepresentation();
+        String key = key(node, representation);
+
+        return labels.computeIfAbsent(key, k -> new Label(this, nextId.getAndIncrement(), k, representation));
+    }
+
+    /**
+     * Returns a label for the given <code>node</code> that does not belong to any dictionary.
+     *
+     * @param node
+     *         the node to label
+     * @return the label of the node
+     */
+    static Label of(ASTNode<?> node) {
+        String representation = node.getMatchingRepresentation();
+        return new Label(null, -1, key(node, representation), representation);
+    }
+
+    /**
+     * Returns the matching key for the given node and its matching representation.
+     *
+     * @param node
+     *         the node
+     * @param representation
+     *         the matching representation of the node
+     * @return the matching key
+     */
+    private static String key(ASTNode<?> node, String representation) {
+        // binary class names contain no spaces, the key therefore determines both components compared by matches
+        return node.getClass().getName() + " " + representation;
+    }
+
+    /**
+     * Returns the number of labels in this dictionary.
+     *
+     * @return the number of labels
+     */
+    public int size() {
+        return labels.size();
+    }
+}
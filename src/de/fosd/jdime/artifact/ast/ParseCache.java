@@ -0,0 +1,414 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.fosd.jdime.Main;
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.extendj.ExtendJVersion;
+import org.extendj.ast.ClassSource;
+import org.extendj.ast.CompilationUnit;
+import org.extendj.ast.Program;
+
+import static de.fosd.jdime.config.JDimeConfig.JDIME_COMMIT;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * A content addressed cache of parsed ASTs. Entries are keyed by the SHA-256 hash of the content of the parsed
+ * {@link FileArtifact}. They store a pristine copy of the parsed <code>Program</code> in which all rewrites ExtendJ
+ * performs when the {@link ASTNodeArtifact} tree is built (e.g. of <code>ParseName</code>s) have already been
+ * applied. On a hit, a copy of the stored <code>Program</code> is encapsulated in a new {@link ASTNodeArtifact}
+ * tree. This avoids parsing the file as well as the expensive rewrites. The stored <code>Program</code> itself is
+ * never handed out, merging may therefore modify the returned trees freely.
+ * <p>
+ * The cache holds at most a configurable number of entries in memory and evicts the least recently used ones. If a
+ * directory is given, the pristine ASTs are additionally stored there in the compact form written by the
+ * {@link ASTNodeCodec} and survive the run. Files parsed by an earlier run are then rebuilt from the directory
+ * without lexing, parsing or rewriting them. The stored ASTs are keyed by the hash of the file content together with
+ * the versions of AutoMerge and ExtendJ, so a directory may be shared by runs of different builds. ASTs that can not
+ * be stored (see {@link ASTNodeCodec}) are cached in memory only. The directory holds at most a configurable number
+ * of ASTs. After an AST was stored, the least recently used ones are deleted, files are touched whenever they are
+ * read so that their modification time is the time of their last use.
+ * <p>
+ * The stored files are compressed and are read once, sequentially, through a stream. They are not memory mapped:
+ * mapping gives no benefit for data that has to be inflated anyway and a mapped file can not be deleted or replaced on
+ * some platforms, which would block the eviction and concurrent runs sharing the directory.
+ * <p>
+ * A {@link ParseCache} is safe for use by multiple threads. Multiple processes may share a directory.
+ */
+public final class ParseCache {
+
+    private static final Logger LOG = Logger.getLogger(ParseCache.class.getCanonicalName());
+
+    private static final String FILE_SUFFIX = ".ast";
+
+    /**
+     * The default maximum number of ASTs kept in the directory.
+     */
+    public static final int DEFAULT_MAX_STORED_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final Map<String, Program> cache;
+
+    private final Path directory;
+    private final int maxStoredEntries;
+    private final String version;
+
+    private final AtomicLong hits;
+    private final AtomicLong diskHits;
+    private final AtomicLong misses;
+
+    /**
+     * Constructs a new empty {@link ParseCache} that keeps the parsed ASTs in memory only.
+     *
+     * @param maxEntries
+     *         the maximum number of parsed files to keep
+     */
+    public ParseCache(int maxEntries) {
+        this(maxEntries, null, 0);
+    }
+
+    /**
+     * Constructs a new {@link ParseCache}. If <code>directory</code> is not <code>null</code>, the ASTs stored there by
+     * earlier runs are used and newly parsed ASTs are added to it.
+     *
+     * @param maxEntries
+     *         the maximum number of parsed files to keep in memory
+     * @param directory
+     *         the directory to store the parsed ASTs in or <code>null</code>
+     * @param maxStoredEntries
+     *         the maximum number of parsed files to keep in the directory
+     */
+    public ParseCache(int maxEntries, Path directory, int maxStoredEntries) {
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<String, Program>(16, .75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+                return size() > ParseCache.this.maxEntries;
+            }
+        };
+
+        this.directory = directory;
+        this.maxStoredEntries = maxStoredEntries;
+        this.version = version();
+
+        this.hits = new AtomicLong();
+        this.diskHits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Returns a string identifying the versions of AutoMerge and ExtendJ. ASTs stored by another build can not be
+     * used since the ExtendJ node classes or the rewrites may differ.
+     *
+     * @return the version string
+     */
+    private static String version() {
+        String commit = Main.config == null ? null : Main.config.get(JDIME_COMMIT).orElse(null);
+        String autoMerge = commit == null ? Main.VERSION : Main.VERSION + " commit " + commit;
+
+        return String.format("%s %s, ExtendJ %s", Main.TOOLNAME, autoMerge, ExtendJVersion.getVersion());
+    }
+
+    /**
+     * Returns the {@link ASTNodeArtifact} tree representing the AST of the code in <code>artifact</code>. If a file
+     * with the same content was parsed before, the tree is constructed from a copy of the AST cached in memory or from
+     * the AST stored in the directory. Otherwise the file is parsed and its AST is added to the cache. Hits and misses
+     * are counted in <code>statistics</code>.
+     *
+     * @param artifact
+     *         the <code>FileArtifact</code> containing the code to be parsed
+     * @param labels
+     *         the <code>LabelDictionary</code> to intern the matching representations in
+     * @param statistics
+     *         the <code>MergeScenarioStatistics</code> to count hits and misses in
+     * @return the <code>ASTNodeArtifact</code> tree
+     * @see ASTNodeArtifact#ASTNodeArtifact(FileArtifact, LabelDictionary)
+     */
+    public ASTNodeArtifact parse(FileArtifact artifact, LabelDictionary labels, MergeScenarioStatistics statistics) {
+
+        if (artifact.isEmpty()) {
+            return new ASTNodeArtifact(artifact, labels);
+        }
+
+        String key = DigestUtils.sha256Hex(artifact.getContent());
+        Program cached;
+
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            statistics.incrementParseCacheHits();
+
+            return new ASTNodeArtifact(artifact.getRevision(), copy(cached), labels);
+        }
+
+        Path file = directory == null ? null : directory.resolve(DigestUtils.sha256Hex(version + key) + FILE_SUFFIX);
+        Program stored = file == null ? null : load(file, artifact);
+
+        if (stored != null) {
+            hits.incrementAndGet();
+            diskHits.incrementAndGet();
+            statistics.incrementParseCacheHits();
+
+            if (maxEntries > 0) {
+
+                synchronized (cache) {
+                    cache.put(key, stored);
+                }
+
+                stored = copy(stored);
+            }
+
+            return new ASTNodeArtifact(artifact.getRevision(), stored, labels);
+        }
+
+        misses.incrementAndGet();
+        statistics.incrementParseCacheMisses();
+
+        ASTNodeArtifact tree = new ASTNodeArtifact(artifact, labels);
+        Program pristine = copy((Program) tree.astnode);
+
+        synchronized (cache) {
+            cache.put(key, pristine);
+        }
+
+        if (file != null) {
+            store(file, pristine);
+        }
+
+        return tree;
+    }
+
+    /**
+     * Reads the AST stored in the given <code>file</code>.
+     *
+     * @param file
+     *         the file to read
+     * @param artifact
+     *         the <code>FileArtifact</code> whose content was parsed to the stored AST
+     * @return the <code>Program</code> or <code>null</code> if there is no such file or it could not be read
+     */
+    private Program load(Path file, FileArtifact artifact) {
+
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        Program program;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            program = ASTNodeCodec.read(version, in);
+        } catch (IOException | RuntimeException | StackOverflowError | OutOfMemoryError e) {
+            LOG.log(WARNING, e, () -> "Could not read the stored AST " + file);
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOG.log(FINE, e, () -> "Could not touch " + file);
+        }
+
+        ClassSource source = SourceContentPath.source(artifact.getFile().getPath(), artifact.getContent());
+
+        for (CompilationUnit unit : program.getCompilationUnitListNoTransform()) {
+            unit.setClassSource(source);
+        }
+
+        return program;
+    }
+
+    /**
+     * Stores the given <code>program</code> in <code>file</code>. The file is written under a temporary name and then
+     * moved into place, concurrent readers therefore never see an incomplete AST.
+     *
+     * @param file
+     *         the file to write
+     * @param program
+     *         the pristine <code>Program</code> to store
+     */
+    private void store(Path file, Program program) {
+        Path tmp = null;
+
+        try {
+            Files.createDirectories(directory);
+            tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+
+                synchronized (program) {
+                    ASTNodeCodec.write(program, version, out);
+                }
+            }
+
+            Files.move(tmp, file, ATOMIC_MOVE);
+            evict();
+        } catch (NotSerializableException e) {
+            LOG.log(FINE, e, () -> "Not storing the AST for " + file + ", it contains a node that can not be stored.");
+        } catch (IOException | StackOverflowError e) {
+            LOG.log(WARNING, e, () -> "Could not store the AST in " + file);
+        } finally {
+
+            Path written = tmp;
+
+            if (written != null) {
+                try {
+                    Files.deleteIfExists(written);
+                } catch (IOException e) {
+                    LOG.log(WARNING, e, () -> "Could not delete " + written);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used ASTs from the directory until it holds at most {@link #maxStoredEntries}.
+     *
+     * @throws IOException
+     *         if the directory can not be listed
+     */
+    private void evict() throws IOException {
+        List<Path> stored;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            stored = files.filter(f -> f.getFileName().toString().endsWith(FILE_SUFFIX)).collect(Collectors.toList());
+        }
+
+        if (stored.size() <= maxStoredEntries) {
+            return;
+        }
+
+        Map<Path, Long> lastUsed = new HashMap<>();
+
+        for (Path file : stored) {
+            try {
+                lastUsed.put(file, Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                lastUsed.put(file, 0L); // most likely deleted by a concurrent run
+            }
+        }
+
+        stored.sort(Comparator.comparing(lastUsed::get));
+
+        for (Path file : stored.subList(0, stored.size() - maxStoredEntries)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.log(WARNING, e, () -> "Could not delete the stored AST " + file);
+            }
+        }
+    }
+
+    /**
+     * Copies the <code>CompilationUnit</code>s of the given <code>program</code> into a new <code>Program</code>.
+     * Other than {@link Program#treeCopyNoTransform()} this does not share the type and class path information of
+     * <code>program</code> with the copy.
+     *
+     * @param program
+     *         the <code>Program</code> to copy
+     * @return the copy
+     */
+    private static Program copy(Program program) {
+        Program copy = new Program();
+
+        synchronized (program) {
+            for (CompilationUnit unit : program.getCompilationUnitListNoTransform()) {
+                copy.addCompilationUnit(unit.treeCopyNoTransform());
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Returns the number of files that were found in the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of files that were rebuilt from the ASTs stored in the directory. These are included in
+     * {@link #getHits()}.
+     *
+     * @return the number of hits in the directory
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Returns the number of files that had to be parsed.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits();
+        long total = h + getMisses();
+        double rate = total == 0 ? 0 : 100.0 * h / total;
+
+        return String.format("%s: %d hits (%d from disk), %d misses (%.1f%% hit rate)", getClass().getSimpleName(), h,
+                             getDiskHits(), total - h, rate);
+    }
+}
@@ -105,7 +105,7 @@ public class SemiStructuredArtifact extends ASTNodeArtifact {
         this.content = new FileArtifact(getRevision(), FILE);
         this.content.setContent(extractOriginalContent(originalLines));
 
-        this.astnode = new SemiStructuredASTNode(this);
+        setASTNode(new SemiStructuredASTNode(this));
 
         ASTNodeArtifact parent = toEncapsulate.getParent();
 
@@ -121,8 +121,13 @@ public class SemiStructuredArtifact extends ASTNodeArtifact {
             }
 
             ConstructorDecl astnode = (ConstructorDecl) enc.astnode;
+            boolean hasInvocation;
 
-            if (astnode.hasParsedConstructorInvocation()) {
+            synchronized (EXTENDJ_LOCK) { // the Opt child is accessed with transformations
+                hasInvocation = astnode.hasParsedConstructorInvocation();
+            }
+
+            if (hasInvocation) {
                 Opt<Stmt> optNode = astnode.getParsedConstructorInvocationOptNoTransform();
 
                 optNode.removeChildren();
@@ -154,6 +159,9 @@ public class SemiStructuredArtifact extends ASTNodeArtifact {
         super(toCopy);
 
         this.content = toCopy.content.copy();
+
+        // the SemiStructuredASTNode refers back to its artifact and can therefore not be shared with the original
+        ownASTNode();
         ((SemiStructuredASTNode) this.astnode).setArtifact(this);
     }
 
@@ -0,0 +1,166 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.extendj.ast.ClassSource;
+import org.extendj.ast.CompilationUnit;
+import org.extendj.ast.PathPart;
+import org.extendj.ast.Program;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A source path serving a single Java source file from memory. Other than ExtendJ's <code>SourceFilePath</code> used
+ * by {@link Program#addSourceFile(String)}, the source code is never read from or written to the file system.
+ */
+final class SourceContentPath extends PathPart {
+
+    /**
+     * The in-memory source of a compilation unit.
+     */
+    private static final class ContentSource extends ClassSource {
+
+        private final String pathName;
+        private final byte[] content;
+
+        private ContentSource(PathPart sourcePath, String pathName, byte[] content) {
+            super(sourcePath);
+            this.pathName = pathName;
+            this.content = content;
+        }
+
+        @Override
+        public long lastModified() {
+            return 0;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public String pathName() {
+            return pathName;
+        }
+    }
+
+    private final String pathName;
+    private final byte[] content;
+
+    /**
+     * The name of the package declared by the parsed compilation unit or <code>null</code> if it was not yet parsed.
+     */
+    private String packageName;
+
+    /**
+     * Constructs a new {@link SourceContentPath} serving the given source code.
+     *
+     * @param pathName
+     *         the path name to report for the source code
+     * @param content
+     *         the source code
+     */
+    private SourceContentPath(String pathName, CharSequence content) {
+        super(true);
+        this.pathName = pathName;
+        this.content = content.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Parses the given source code and adds the resulting <code>CompilationUnit</code> to <code>program</code>. This
+     * is the in-memory equivalent of {@link Program#addSourceFile(String)}, including the registration of the
+     * declared package with <code>program</code>. Only the parsing runs without holding
+     * {@link ASTNodeArtifact#EXTENDJ_LOCK}.
+     *
+     * @param program
+     *         the <code>Program</code> to add the <code>CompilationUnit</code> to
+     * @param pathName
+     *         the path name to report for the source code
+     * @param content
+     *         the source code
+     * @return the parsed <code>CompilationUnit</code>
+     * @throws IOException
+     *         if the source code can not be parsed
+     */
+    static CompilationUnit addSource(Program program, String pathName, CharSequence content) throws IOException {
+        SourceContentPath path = new SourceContentPath(pathName, content);
+        CompilationUnit unit = path.getCompilationUnit(program, pathName);
+
+        synchronized (ASTNodeArtifact.EXTENDJ_LOCK) { // packageName() and addCompilationUnit() evaluate attributes
+            path.packageName = unit.packageName();
+            program.addClassPath(path);
+            program.addCompilationUnit(unit);
+        }
+
+        return unit;
+    }
+
+    /**
+     * Returns a <code>ClassSource</code> serving the given source code from memory. It may be set as the source of a
+     * <code>CompilationUnit</code> that was not parsed from it, e.g. one restored by the {@link ParseCache}.
+     *
+     * @param pathName
+     *         the path name to report for the source code
+     * @param content
+     *         the source code
+     * @return the <code>ClassSource</code>
+     */
+    static ClassSource source(String pathName, CharSequence content) {
+        return new SourceContentPath(pathName, content).findSource(pathName);
+    }
+
+    @Override
+    public String getPath() {
+        return pathName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Like the package of a file added using {@link Program#addSourceFile(String)}, the package declared by the parsed
+     * compilation unit and all its enclosing packages are known to the <code>Program</code>.
+     */
+    @Override
+    public boolean hasPackage(String name) {
+
+        if (packageName == null || name.isEmpty() || !packageName.startsWith(name)) {
+            return false;
+        }
+
+        return packageName.length() == name.length() || packageName.charAt(name.length()) == '.';
+    }
+
+    @Override
+    public ClassSource findSource(String name) {
+        return pathName.equals(name) ? new ContentSource(this, pathName, content) : ClassSource.NONE;
+    }
+}
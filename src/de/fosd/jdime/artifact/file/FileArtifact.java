@@ -40,6 +40,7 @@ import de.fosd.jdime.execption.NotYetImplementedException;
 import de.fosd.jdime.matcher.Matcher;
 import de.fosd.jdime.matcher.matching.Color;
 import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.merge.FileMergeScheduler;
 import de.fosd.jdime.merge.Merge;
 import de.fosd.jdime.operations.MergeOperation;
 import de.fosd.jdime.stats.ElementStatistics;
@@ -57,9 +58,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -91,6 +96,11 @@ public class FileArtifact extends Artifact<FileArtifact> {
      */
     private static final String MIME_JAVA_SOURCE = "text/x-java";
 
+    /**
+     * The file name extension of java source files.
+     */
+    private static final String JAVA_EXTENSION = ".java";
+
     /**
      * Used for determining the content type of this <code>FileArtifact</code> if
      * {@link Files#probeContentType(java.nio.file.Path)} fails.
@@ -105,13 +115,6 @@ public class FileArtifact extends Artifact<FileArtifact> {
         mimeMap.addMimeTypes(MIME_JAVA_SOURCE + " java");
     }
 
-    /**
-     * Default temporary folder.
-     *
-     * @author Fengmin Zhu
-     */
-    public static String TMP_FOLDER = "/tmp";
-
     /**
      * A <code>Comparator</code> to compare <code>FileArtifact</code>s by their <code>File</code>s. It considers
      * all directories smaller than files and otherwise compares by the file name.
@@ -127,6 +130,130 @@ public class FileArtifact extends Artifact<FileArtifact> {
         }
     };
 
+    /**
+     * Orders the children of a directory like {@link #comp} does without accessing the file system. Only usable for
+     * <code>FileArtifact</code>s whose {@link #type} reflects the existing file they represent.
+     */
+    private static final Comparator<FileArtifact> scanComp =
+            Comparator.comparing(FileArtifact::isFile).thenComparing(a -> a.getFile().getName());
+
+    /**
+     * Builds the <code>FileArtifact</code> tree below a directory in a single walk of the file system using
+     * {@link Files#walkFileTree(Path, Set, int, java.nio.file.FileVisitor)}. The types of the files are taken from the
+     * attributes read by the walk. The artifacts are numbered in the order the walk visits them, that is in DFS order.
+     */
+    private static final class DirectoryScanner extends SimpleFileVisitor<Path> {
+
+        private final Revision revision;
+        private final Supplier<Integer> number;
+
+        private final Deque<FileArtifact> directories;
+        private final Deque<List<FileArtifact>> contents;
+
+        private boolean visitedRoot;
+
+        /**
+         * Constructs a new <code>DirectoryScanner</code> adding the contents of the directory represented by
+         * <code>root</code> as children to it.
+         *
+         * @param root   the <code>FileArtifact</code> representing the directory to scan
+         * @param number the number <code>Supplier</code> to be passed to the new <code>FileArtifact</code>s
+         */
+        private DirectoryScanner(FileArtifact root, Supplier<Integer> number) {
+            this.revision = root.getRevision();
+            this.number = number;
+            this.directories = new ArrayDeque<>();
+            this.contents = new ArrayDeque<>();
+            this.visitedRoot = false;
+
+            directories.push(root);
+        }
+
+        /**
+         * Scans the directory represented by the given <code>FileArtifact</code> and adds its contents as children.
+         *
+         * @param root   the <code>FileArtifact</code> representing the directory to scan
+         * @param number the number <code>Supplier</code> to be passed to the new <code>FileArtifact</code>s
+         * @throws IllegalArgumentException if the directory contains a file that is not a normal file or directory
+         */
+        static void scan(FileArtifact root, Supplier<Integer> number) {
+            Path dir = root.getFile().toPath();
+            Set<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+
+            try {
+                Files.walkFileTree(dir, options, Integer.MAX_VALUE, new DirectoryScanner(root, number));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not scan the directory '" + dir + "'.", e);
+            }
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+
+            if (visitedRoot) {
+                FileArtifact directory = new FileArtifact(revision, number.get(), dir.toFile(), FileType.DIR);
+
+                contents.element().add(directory);
+                directories.push(directory);
+            } else {
+                visitedRoot = true;
+            }
+
+            contents.push(new ArrayList<>());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+
+            if (!attrs.isRegularFile()) {
+                throw new IllegalArgumentException("File '" + file + "' is not a normal file or directory.");
+            }
+
+            contents.element().add(new FileArtifact(revision, number.get(), file.toFile(), FileType.FILE));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+
+            if (exc instanceof FileSystemLoopException) {
+                LOG.warning(() -> String.format("Skipping %s which would cause a file system loop.", file));
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (!Files.isDirectory(file)) {
+                throw exc;
+            }
+
+            LOG.warning(() -> String.format("Could not get the directory contents of %s: %s", file, exc));
+
+            if (visitedRoot) {
+                contents.element().add(new FileArtifact(revision, number.get(), file.toFile(), FileType.DIR));
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            FileArtifact directory = directories.pop();
+            List<FileArtifact> children = contents.pop();
+
+            if (exc != null) {
+                LOG.warning(() -> String.format("Could not get all directory contents of %s: %s", directory, exc));
+            }
+
+            children.forEach(c -> c.setParent(directory));
+            directory.modifyChildren(cs -> {
+                cs.addAll(children);
+                cs.sort(scanComp);
+            });
+
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
     /**
      * The type of virtual {@link File} to be represented by a {@link FileArtifact}.
      */
@@ -219,13 +346,27 @@ public class FileArtifact extends Artifact<FileArtifact> {
         this.file = file;
 
         if (recursive && isDirectory()) {
-            modifyChildren(children -> {
-                children.addAll(getDirContent(number));
-                children.sort(comp);
-            });
+            DirectoryScanner.scan(this, number);
         }
     }
 
+    /**
+     * Constructs a new <code>FileArtifact</code> representing the given existing <code>File</code> of the given
+     * <code>type</code>. Used by the {@link DirectoryScanner}, which already knows the type of the file.
+     *
+     * @param revision the <code>Revision</code> the artifact belongs to
+     * @param number   the number of the artifact
+     * @param file     the <code>File</code> in which the artifact is stored
+     * @param type     the type of the <code>File</code>
+     */
+    private FileArtifact(Revision revision, int number, File file, FileType type) {
+        super(revision, number);
+
+        this.type = type;
+        this.original = file;
+        this.file = file;
+    }
+
     /**
      * Constructs a new virtual {@link FileArtifact} representing a non-existent {@link File} with a generated name. The
      * new {@link FileArtifact} will always have the number 0.
@@ -338,12 +479,27 @@ public class FileArtifact extends Artifact<FileArtifact> {
     }
 
     /**
-     * Returns whether this <code>FileArtifact</code> (probably) represents a Java source code file.
+     * Returns whether this <code>FileArtifact</code> (probably) represents a Java source code file. Files are
+     * classified by their {@value #JAVA_EXTENSION} extension, the content type is only probed for files without any
+     * extension.
      *
      * @return true iff this <code>FileArtifact</code> likely represents a Java source code file
      */
     public boolean isJavaFile() {
-        return isFile() && MIME_JAVA_SOURCE.equals(getContentType());
+
+        if (!isFile()) {
+            return false;
+        }
+
+        String name = getFile().getName();
+
+        if (name.endsWith(JAVA_EXTENSION)) {
+            return true;
+        } else if (name.indexOf('.') >= 0) {
+            return false;
+        }
+
+        return MIME_JAVA_SOURCE.equals(getContentType());
     }
 
     /**
@@ -375,36 +531,6 @@ public class FileArtifact extends Artifact<FileArtifact> {
         return mimeType;
     }
 
-    /**
-     * Returns newly allocated <code>FileArtifacts</code> representing the files contained in the directory represented
-     * by this <code>FileArtifact</code>. If this <code>FileArtifact</code> does not represent a directory, an empty
-     * list is returned.
-     *
-     * @param number the number <code>Supplier</code> to be passed to the new <code>FileArtifact</code>s
-     * @return <code>FileArtifacts</code> representing the children of this directory
-     */
-    private List<FileArtifact> getDirContent(Supplier<Integer> number) {
-        File[] files = getFile().listFiles();
-
-        if (files == null) {
-            LOG.warning(() -> String.format("Tried to get the directory contents of %s which is not a directory.", this));
-            return Collections.emptyList();
-        } else if (files.length == 0) {
-            return Collections.emptyList();
-        }
-
-        List<FileArtifact> artifacts = new ArrayList<>(files.length);
-
-        for (File f : files) {
-            FileArtifact child = new FileArtifact(getRevision(), number, f, true);
-
-            child.setParent(this);
-            artifacts.add(child);
-        }
-
-        return artifacts;
-    }
-
     /**
      * Returns the encapsulated file. The original file will be returned for non-virtual
      * {@link FileArtifact FileArtifacts}. If the {@link FileArtifact} is virtual, the returned {@link File} may not
@@ -604,6 +730,17 @@ public class FileArtifact extends Artifact<FileArtifact> {
         return isDirectory() && other.isDirectory() || isFile() && other.isFile();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Top-level directories match regardless of their keys. They are never children of another
+     * <code>FileArtifact</code> and therefore never grouped by their key.
+     */
+    @Override
+    public String getMatchingKey() {
+        return toString();
+    }
+
     @Override
     public void merge(MergeOperation<FileArtifact> operation, MergeContext context) {
         Objects.requireNonNull(operation, "operation must not be null!");
@@ -625,7 +762,22 @@ public class FileArtifact extends Artifact<FileArtifact> {
             }
 
             LOG.finer(() -> "Merging directories " + operation.getMergeScenario());
-            merge.merge(operation, context);
+
+            if (context.getDirectoryMergeThreads() != 1 && context.getFileMergeScheduler() == null) {
+                FileMergeScheduler scheduler = new FileMergeScheduler(context);
+
+                context.setFileMergeScheduler(scheduler);
+
+                try {
+                    merge.merge(operation, context);
+                } finally {
+                    context.setFileMergeScheduler(null);
+                }
+
+                scheduler.run();
+            } else {
+                merge.merge(operation, context);
+            }
         } else {
             MergeStrategy<FileArtifact> strategy = context.getMergeStrategy();
             MergeScenario<FileArtifact> scenario = operation.getMergeScenario();
@@ -639,6 +791,11 @@ public class FileArtifact extends Artifact<FileArtifact> {
                 context.getStatistics().setCurrentFileMergeScenario(scenario);
             }
 
+            if (context.getFileMergeScheduler() != null) {
+                context.getFileMergeScheduler().schedule(operation);
+                return;
+            }
+
             try {
                 try {
                     strategy.merge(operation, context);
@@ -810,54 +967,32 @@ public class FileArtifact extends Artifact<FileArtifact> {
         throw new NotYetImplementedException();
     }
 
-    private String getTempFileName() {
-        return getFile().getAbsolutePath().replace(java.io.File.separator.charAt(0), '.');
-    }
-
     /**
-     * Create a temporary file artifact which has the pretty-print content and
-     * write it to `TMP_FOLDER` on the file system.
+     * Parses the content of this file artifact, pretty-prints the resulting AST and parses the pretty-printed code
+     * again in the given revision. The code is parsed in memory.
      * ASSUME that `this` is file and `content` is nonempty.
      *
-     * @return the new temporary file artifact
+     * @param revision the revision of the new AST
+     * @return the AST of the pretty-printed content
      */
     public ASTNodeArtifact createASTNodeArtifact(Revision revision) {
         assert isFile();
 
-        Path path = Paths.get(TMP_FOLDER, revision.getName() + "-" + getTempFileName());
-        File file = path.toFile();
-        try {
-            OutputStreamWriter out = new OutputStreamWriter(FileUtils.openOutputStream(file), UTF_8);
-            ASTNodeArtifact a = new ASTNodeArtifact(this);
-            out.write(a.prettyPrint());
-            out.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return new ASTNodeArtifact(new FileArtifact(revision, file));
+        ASTNodeArtifact a = new ASTNodeArtifact(this);
+        return new ASTNodeArtifact(revision, getFile().getPath(), a.prettyPrint());
     }
 
     /**
-     * Create a temporary file artifact which has the `content` and write it to `TMP_FOLDER` on the file system.
+     * Parses the `content` of this file artifact in the given revision. The code is parsed in memory.
      * ASSUME that `this` is file and `content` is nonempty.
      *
-     * @return the new temporary file artifact
+     * @param revision the revision of the new AST
+     * @return the AST of the content
      */
     public ASTNodeArtifact createASTNodeArtifactFromContent(Revision revision) {
         assert isFile() && content != null;
 
-        Path path = Paths.get(TMP_FOLDER, revision.getName() + "-" + getTempFileName());
-        File file = path.toFile();
-        try {
-            OutputStreamWriter out = new OutputStreamWriter(FileUtils.openOutputStream(file), UTF_8);
-            out.write(content);
-            out.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return new ASTNodeArtifact(new FileArtifact(revision, file));
+        return new ASTNodeArtifact(revision, getFile().getPath(), content);
     }
 
     /**
@@ -74,6 +74,9 @@ public class CommandLineConfigSource extends ConfigSource {
     public static final String CLI_CM_PARALLEL = "cmpar";
     public static final String CLI_CM_FIX_PERCENTAGE = "cmfix";
     public static final String CLI_CM_SEED = "cmseed";
+    public static final String CLI_CM_CHAINS = "cmchains";
+    public static final String CLI_CM_CANDIDATES = "cmcand";
+    public static final String CLI_HYBRID_MATCHER = "hybrid";
 
     /**
      * Expected artifact.
@@ -84,7 +87,8 @@ public class CommandLineConfigSource extends ConfigSource {
     public static final String CLI_EXPECTED = "e";
 
     /**
-     * Temporary folder.
+     * Temporary folder. The option is deprecated: sources are parsed in memory, it has no effect and is only kept so
+     * that existing invocations do not fail.
      * -t, --tmp
      *
      * @author Fengmin Zhu
@@ -377,7 +381,11 @@ public class CommandLineConfigSource extends ConfigSource {
         o = Option.builder(CLI_CM_OPTIONS)
                 .longOpt("cost-model-options")
                 .desc("Accepts a comma separated list of parameters for the cost model matcher. The list must have " +
-                        "the form: <int iterations>,<float pAssign>,<float wr>,<float wn>,<float wa>,<float ws>,<float wo>")
+                        "the form: <int iterations>,<float pAssign>,<float wr>,<float wn>,<float wa>,<float ws>,<float wo> " +
+                        "optionally followed by ,<int stagnation>,<float minImprovement>,<long invocationMS>,<long fileMS>. " +
+                        "The search stops early if the lowest cost did not improve by more than minImprovement (relative) " +
+                        "for stagnation iterations or if it ran for invocationMS milliseconds or the cost model matcher " +
+                        "ran for fileMS milliseconds on the current file. 0 disables the respective criterion.")
                 .hasArg(true)
                 .build();
 
@@ -410,6 +418,36 @@ public class CommandLineConfigSource extends ConfigSource {
 
         options.addOption(o);
 
+        o = Option.builder(CLI_CM_CHAINS)
+                .longOpt("cost-model-chains")
+                .desc("The number of independent Markov chains the cost model matcher runs in parallel. The lowest " +
+                        "cost matchings found by any of them are used. The PRNGs of the chains are seeded from the " +
+                        "cost model seed. The default is 1.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_CM_CANDIDATES)
+                .longOpt("cost-model-candidates")
+                .desc("The number of matching candidates per node the cost model matcher considers. Candidates are " +
+                        "ranked by subtree identity, matching representation and position. If set to 0 all pairs " +
+                        "of nodes are considered. The default is 0.")
+                .hasArg(true)
+                .build();
+
+        options.addOption(o);
+
+        o = Option.builder(CLI_HYBRID_MATCHER)
+                .longOpt("hybrid-matcher")
+                .desc("Match the trees in two phases instead of recursively: first identical subtrees top-down, then " +
+                        "their containers bottom-up. This is much faster for large files. Has no effect if the cost " +
+                        "model matcher mode is " + CMMode.REPLACEMENT + " or in conditional merge mode.")
+                .hasArg(false)
+                .build();
+
+        options.addOption(o);
+
         o = Option.builder(CLI_EXPECTED)
                 .longOpt("expected")
                 .desc("Expected artifact to compare with.")
@@ -420,7 +458,7 @@ public class CommandLineConfigSource extends ConfigSource {
 
         o = Option.builder(CLI_TMP_FOLDER)
                 .longOpt("tmp")
-                .desc("Temporary folder to write some generated sources, default /tmp.")
+                .desc("Deprecated, has no effect. Sources are parsed in memory and no temporary files are written.")
                 .hasArg(true)
                 .build();
 
@@ -36,7 +36,11 @@ import java.util.logging.Logger;
 
 import de.fosd.jdime.Main;
 import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.matcher.MatchingMemo;
+import de.fosd.jdime.matcher.matching.Matchings;
 import de.fosd.jdime.matcher.ordered.mceSubtree.MCESubtreeMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.SparseAssignmentMatcher;
 import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Statistics;
@@ -116,6 +120,81 @@ public final class JDimeConfig extends Config {
      */
     public static final String USE_MCESUBTREE_MATCHER = "USE_MCESUBTREE_MATCHER";
 
+    /**
+     * Whether to use the {@link SparseAssignmentMatcher} for children that are neither ordered nor uniquely labeled.
+     * It only compares children with equal matching keys and solves the assignment problem per group of such
+     * children. Must be either 'true' or 'false'. Defaults to false.
+     */
+    public static final String USE_SPARSE_UNORDERED_MATCHER = "USE_SPARSE_UNORDERED_MATCHER";
+
+    /**
+     * The solver to use for the assignment problems arising when matching unordered children. Must be the name of
+     * one of the {@link AssignmentSolver} constants (case insensitive). Defaults to 'HUNGARIAN'.
+     */
+    public static final String ASSIGNMENT_SOLVER = "ASSIGNMENT_SOLVER";
+
+    /**
+     * Whether to memoize the {@link Matchings} of subtree pairs by their structural hashes and reuse them across the
+     * matching phases of a merge and across files. Must be either 'true' or 'false'. Defaults to false.
+     *
+     * @see MatchingMemo
+     */
+    public static final String USE_MATCHING_MEMO = "USE_MATCHING_MEMO";
+
+    /**
+     * The maximum number of parsed files whose ASTs are kept in a {@link de.fosd.jdime.artifact.ast.ParseCache} for
+     * the duration of the run. Files with identical content are parsed only once. Must be a number parseable by
+     * {@link Integer#parseInt(String)}. Defaults to 0, which disables the cache.
+     */
+    public static final String PARSE_CACHE_SIZE = "PARSE_CACHE_SIZE";
+
+    /**
+     * The directory in which a {@link de.fosd.jdime.artifact.ast.ParseCache} stores the parsed ASTs across runs. Files
+     * whose AST was stored by an earlier run of the same AutoMerge build are not parsed again. The directory is created
+     * if necessary and may be shared by multiple runs. By default, ASTs are not stored.
+     */
+    public static final String PARSE_CACHE_DIRECTORY = "PARSE_CACHE_DIRECTORY";
+
+    /**
+     * The maximum number of ASTs a {@link de.fosd.jdime.artifact.ast.ParseCache} keeps in its
+     * {@link #PARSE_CACHE_DIRECTORY}. The least recently used ones are deleted when a new AST is stored. Must be a
+     * number parseable by {@link Integer#parseInt(String)}. Defaults to
+     * {@link de.fosd.jdime.artifact.ast.ParseCache#DEFAULT_MAX_STORED_ENTRIES}.
+     */
+    public static final String PARSE_CACHE_DIRECTORY_SIZE = "PARSE_CACHE_DIRECTORY_SIZE";
+
+    /**
+     * Whether to match the child pairs of large nodes in parallel using the common fork/join pool. Must be either
+     * 'true' or 'false'. Defaults to false. Has no effect if the cost model matcher runs in integrated mode.
+     *
+     * @see de.fosd.jdime.matcher.ChildPairMatcher
+     */
+    public static final String PARALLEL_MATCHING = "PARALLEL_MATCHING";
+
+    /**
+     * The minimum number of child pairs (left children times right children) for which {@link #PARALLEL_MATCHING}
+     * takes effect. Must be a number parseable by {@link Integer#parseInt(String)}. Defaults to 64.
+     */
+    public static final String PARALLEL_MATCHING_THRESHOLD = "PARALLEL_MATCHING_THRESHOLD";
+
+    /**
+     * The number of threads merging the Java files of a directory merge in parallel. Must be a number parseable by
+     * {@link Integer#parseInt(String)}. Defaults to 1, which merges the files sequentially. Values smaller than 1 use
+     * one thread per available processor.
+     *
+     * @see de.fosd.jdime.merge.FileMergeScheduler
+     */
+    public static final String DIRECTORY_MERGE_THREADS = "DIRECTORY_MERGE_THREADS";
+
+    /**
+     * The minimum number of child pairs (left children times right children) of two nodes with ordered children for
+     * which the linear space variant of the ordered matcher is used instead of the one keeping the full score table.
+     * Must be a number parseable by {@link Integer#parseInt(String)}. Defaults to 250000.
+     *
+     * @see de.fosd.jdime.matcher.ordered.simpleTree.LinearSpaceTreeMatcher
+     */
+    public static final String LINEAR_SPACE_MATCHING_THRESHOLD = "LINEAR_SPACE_MATCHING_THRESHOLD";
+
     /**
      * Whether to append a number to the file name to ensure that no file of the same name is overwritten when
      * writing the statistics. Must be either 'true' or 'false'. Defaults to true.
@@ -244,8 +323,8 @@ public final class JDimeConfig extends Config {
         addSource(new SysEnvConfigSource(1));
         get(CLI_LOG_LEVEL).ifPresent(JDimeConfig::setLogLevel);
 
-        // set temp folder
-        get(CLI_TMP_FOLDER).ifPresent(tf -> FileArtifact.TMP_FOLDER = tf);
+        get(CLI_TMP_FOLDER).ifPresent(tf -> LOG.warning(() -> "The temporary folder option is deprecated and has no " +
+                "effect, sources are parsed in memory."));
     }
 
     /**
@@ -33,10 +33,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -47,14 +52,19 @@ import java.util.stream.Collectors;
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.artifact.ArtifactList;
 import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.artifact.ast.ParseCache;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.CommandLineConfigSource;
 import de.fosd.jdime.config.JDimeConfig;
 import de.fosd.jdime.execption.AbortException;
+import de.fosd.jdime.matcher.MatchingMemo;
 import de.fosd.jdime.matcher.cost_model.CMMode;
 import de.fosd.jdime.matcher.cost_model.CostModelMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
+import de.fosd.jdime.merge.FileMergeScheduler;
 import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.stats.Runtime;
 import de.fosd.jdime.stats.Statistics;
 import de.fosd.jdime.strategy.LinebasedStrategy;
 import de.fosd.jdime.strategy.MergeStrategy;
@@ -66,7 +76,18 @@ import static de.fosd.jdime.config.CommandLineConfigSource.*;
 import static de.fosd.jdime.config.JDimeConfig.FILTER_INPUT_DIRECTORIES;
 import static de.fosd.jdime.config.JDimeConfig.STATISTICS_XML_EXCLUDE_MSS_FIELDS;
 import static de.fosd.jdime.config.JDimeConfig.TWOWAY_FALLBACK;
+import static de.fosd.jdime.config.JDimeConfig.ASSIGNMENT_SOLVER;
+import static de.fosd.jdime.config.JDimeConfig.DIRECTORY_MERGE_THREADS;
+import static de.fosd.jdime.config.JDimeConfig.LINEAR_SPACE_MATCHING_THRESHOLD;
+import static de.fosd.jdime.config.JDimeConfig.PARALLEL_MATCHING;
+import static de.fosd.jdime.config.JDimeConfig.PARALLEL_MATCHING_THRESHOLD;
+import static de.fosd.jdime.config.JDimeConfig.PARSE_CACHE_DIRECTORY;
+import static de.fosd.jdime.config.JDimeConfig.PARSE_CACHE_DIRECTORY_SIZE;
+import static de.fosd.jdime.config.JDimeConfig.PARSE_CACHE_SIZE;
+import static de.fosd.jdime.config.JDimeConfig.USE_MATCHING_MEMO;
 import static de.fosd.jdime.config.JDimeConfig.USE_MCESUBTREE_MATCHER;
+import static de.fosd.jdime.config.JDimeConfig.USE_SPARSE_UNORDERED_MATCHER;
+import static de.fosd.jdime.stats.Runtime.SCAN_LABEL;
 import static java.util.logging.Level.WARNING;
 
 /**
@@ -201,6 +222,75 @@ public class MergeContext implements Cloneable {
      */
     private boolean useMCESubtreeMatcher;
 
+    /**
+     * Whether to use the <code>SparseAssignmentMatcher</code> instead of the <code>HungarianMatcher</code> in the
+     * matching phase of the merge.
+     */
+    private boolean useSparseUnorderedMatcher;
+
+    /**
+     * Whether to use the <code>HybridMatcher</code> instead of the recursive matchers in the matching phase of the
+     * merge.
+     */
+    private boolean useHybridMatcher;
+
+    /**
+     * The solver for the assignment problems arising when matching unordered children.
+     */
+    private AssignmentSolver assignmentSolver;
+
+    /**
+     * The {@link MatchingMemo} shared by all matchers of this run or {@code null} if memoization is disabled.
+     */
+    private MatchingMemo matchingMemo;
+
+    /**
+     * The {@link ParseCache} shared by all merges of this run or {@code null} if parsed ASTs are not cached.
+     */
+    private ParseCache parseCache;
+
+    /**
+     * The maximum number of parsed files the {@link #parseCache} keeps in memory.
+     */
+    private int parseCacheSize;
+
+    /**
+     * The directory the {@link #parseCache} stores the parsed ASTs in or {@code null} if they are not stored.
+     */
+    private Path parseCacheDirectory;
+
+    /**
+     * The maximum number of parsed files the {@link #parseCache} keeps in its {@link #parseCacheDirectory}.
+     */
+    private int parseCacheDirectorySize;
+
+    /**
+     * Whether to match the child pairs of large nodes in parallel.
+     */
+    private boolean parallelMatching;
+
+    /**
+     * The minimum number of child pairs for which they are matched in parallel.
+     */
+    private int parallelMatchingThreshold;
+
+    /**
+     * The minimum number of child pairs of two nodes with ordered children for which the linear space variant of the
+     * ordered matcher is used.
+     */
+    private int linearSpaceMatchingThreshold;
+
+    /**
+     * The number of threads merging the Java files of a directory merge in parallel.
+     */
+    private int directoryMergeThreads;
+
+    /**
+     * The {@link FileMergeScheduler} collecting the file merges of the directory merge currently being performed or
+     * {@code null} if files are merged immediately. It is not copied, copies merge their files immediately.
+     */
+    private FileMergeScheduler fileMergeScheduler;
+
     /**
      * Whether {@link StructuredStrategy} act semi-structured, that is whether it should perform line based merging
      * on the configured {@link #semiStructuredLevel}.
@@ -231,6 +321,24 @@ public class MergeContext implements Cloneable {
     private int costModelIterations;
     private boolean cmMatcherParallel;
     private boolean cmMatcherFixRandomPercentage;
+    private int cmChains;
+    private int cmCandidates;
+    private int cmStagnationWindow;
+    private float cmMinImprovement;
+    private long cmInvocationBudget;
+    private long cmFileBudget;
+
+    /**
+     * The {@link Runtime} accumulating the time and iterations spent in the cost model matcher for the file currently
+     * being merged or {@code null} if they are not being recorded.
+     */
+    private Runtime costModelRuntime;
+
+    /**
+     * The {@link Runtime} measuring the scan of the input files or {@code null} if the input files were not
+     * configured from a {@link JDimeConfig}.
+     */
+    private Runtime scanRuntime;
 
     /**
      * Expected file/folder. When given, compare result with this expected file/folder after merge.
@@ -269,11 +377,23 @@ public class MergeContext implements Cloneable {
         this.statistics = new Statistics();
         this.excludeStatisticsMSSFields = new ArrayList<>();
         this.useMCESubtreeMatcher = false;
+        this.useHybridMatcher = false;
+        this.useSparseUnorderedMatcher = false;
+        this.assignmentSolver = AssignmentSolver.HUNGARIAN;
+        this.matchingMemo = null;
+        this.parseCache = null;
+        this.parseCacheSize = 0;
+        this.parseCacheDirectory = null;
+        this.parseCacheDirectorySize = ParseCache.DEFAULT_MAX_STORED_ENTRIES;
+        this.parallelMatching = false;
+        this.parallelMatchingThreshold = 64;
+        this.linearSpaceMatchingThreshold = 250_000;
+        this.directoryMergeThreads = 1;
         this.semiStructured = false;
         this.semiStructuredLevel = KeyEnums.Level.METHOD;
         this.lookAhead = MergeContext.LOOKAHEAD_OFF;
         this.lookAheads = new HashMap<>();
-        this.crashes = new HashMap<>();
+        this.crashes = Collections.synchronizedMap(new HashMap<>());
         this.cmMatcherMode = CMMode.OFF;
         this.cmReMatchBound = .3f;
         this.wr = 1;
@@ -288,6 +408,14 @@ public class MergeContext implements Cloneable {
         this.costModelIterations = 100;
         this.cmMatcherParallel = true;
         this.cmMatcherFixRandomPercentage = true;
+        this.cmChains = 1;
+        this.cmCandidates = 0;
+        this.cmStagnationWindow = 0;
+        this.cmMinImprovement = 0;
+        this.cmInvocationBudget = 0;
+        this.cmFileBudget = 0;
+        this.costModelRuntime = null;
+        this.scanRuntime = null;
         this.expected = Optional.empty();
     }
 
@@ -321,13 +449,25 @@ public class MergeContext implements Cloneable {
         this.statistics = new Statistics(toCopy.statistics);
         this.excludeStatisticsMSSFields = new ArrayList<>(toCopy.excludeStatisticsMSSFields);
         this.useMCESubtreeMatcher = toCopy.useMCESubtreeMatcher;
+        this.useHybridMatcher = toCopy.useHybridMatcher;
+        this.useSparseUnorderedMatcher = toCopy.useSparseUnorderedMatcher;
+        this.assignmentSolver = toCopy.assignmentSolver;
+        this.matchingMemo = toCopy.matchingMemo; // the memo is shared by all copies for the whole run
+        this.parseCache = toCopy.parseCache; // as is the parse cache
+        this.parseCacheSize = toCopy.parseCacheSize;
+        this.parseCacheDirectory = toCopy.parseCacheDirectory;
+        this.parseCacheDirectorySize = toCopy.parseCacheDirectorySize;
+        this.parallelMatching = toCopy.parallelMatching;
+        this.parallelMatchingThreshold = toCopy.parallelMatchingThreshold;
+        this.linearSpaceMatchingThreshold = toCopy.linearSpaceMatchingThreshold;
+        this.directoryMergeThreads = toCopy.directoryMergeThreads;
         this.semiStructured = toCopy.semiStructured;
         this.semiStructuredLevel = toCopy.semiStructuredLevel;
 
         this.lookAhead = toCopy.lookAhead;
         this.lookAheads = new HashMap<>(toCopy.lookAheads);
 
-        this.crashes = new HashMap<>(toCopy.crashes);
+        this.crashes = Collections.synchronizedMap(new HashMap<>(toCopy.crashes));
         this.cmMatcherMode = toCopy.cmMatcherMode;
         this.cmReMatchBound = toCopy.cmReMatchBound;
         this.wr = toCopy.wr;
@@ -342,6 +482,14 @@ public class MergeContext implements Cloneable {
         this.costModelIterations = toCopy.costModelIterations;
         this.cmMatcherParallel = toCopy.cmMatcherParallel;
         this.cmMatcherFixRandomPercentage = toCopy.cmMatcherFixRandomPercentage;
+        this.cmChains = toCopy.cmChains;
+        this.cmCandidates = toCopy.cmCandidates;
+        this.cmStagnationWindow = toCopy.cmStagnationWindow;
+        this.cmMinImprovement = toCopy.cmMinImprovement;
+        this.cmInvocationBudget = toCopy.cmInvocationBudget;
+        this.cmFileBudget = toCopy.cmFileBudget;
+        this.costModelRuntime = toCopy.costModelRuntime;
+        this.scanRuntime = toCopy.scanRuntime;
         this.expected = toCopy.expected;
         this.leftArtifactRoot = toCopy.leftArtifactRoot;
     }
@@ -450,6 +598,25 @@ public class MergeContext implements Cloneable {
         });
 
         config.getBoolean(USE_MCESUBTREE_MATCHER).ifPresent(this::setUseMCESubtreeMatcher);
+        config.getBoolean(USE_SPARSE_UNORDERED_MATCHER).ifPresent(this::setUseSparseUnorderedMatcher);
+
+        config.get(ASSIGNMENT_SOLVER, solver -> {
+
+            try {
+                return Optional.of(AssignmentSolver.valueOf(solver.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                LOG.log(WARNING, e, () -> "Invalid assignment solver " + solver);
+                return Optional.empty();
+            }
+        }).ifPresent(this::setAssignmentSolver);
+        config.getBoolean(USE_MATCHING_MEMO).ifPresent(this::setUseMatchingMemo);
+        config.getInteger(PARSE_CACHE_SIZE).ifPresent(this::setParseCacheSize);
+        config.get(PARSE_CACHE_DIRECTORY).map(Paths::get).ifPresent(this::setParseCacheDirectory);
+        config.getInteger(PARSE_CACHE_DIRECTORY_SIZE).ifPresent(this::setParseCacheDirectorySize);
+        config.getBoolean(PARALLEL_MATCHING).ifPresent(this::setParallelMatching);
+        config.getInteger(PARALLEL_MATCHING_THRESHOLD).ifPresent(this::setParallelMatchingThreshold);
+        config.getInteger(LINEAR_SPACE_MATCHING_THRESHOLD).ifPresent(this::setLinearSpaceMatchingThreshold);
+        config.getInteger(DIRECTORY_MERGE_THREADS).ifPresent(this::setDirectoryMergeThreads);
 
         config.get(CLI_LOOKAHEAD, val -> {
             String msg = "Invalid lookahead level '" + val + "'. Must be one of 'off', 'full' or a non-negative integer.";
@@ -516,13 +683,17 @@ public class MergeContext implements Cloneable {
         config.get(CLI_CM_OPTIONS).ifPresent(opts -> {
             String[] split = opts.trim().split("\\s*,\\s*");
 
-            if (split.length != 7) {
+            if (split.length != 7 && split.length != 11) {
                 LOG.warning(() -> "The cost model options have an invalid format. Using defaults.");
                 return;
             }
 
             int costModelIterations;
             float pAssign, wr, wn, wa, ws, wo;
+            int stagnationWindow = getCmStagnationWindow();
+            float minImprovement = getCmMinImprovement();
+            long invocationBudget = getCmInvocationBudget();
+            long fileBudget = getCmFileBudget();
 
             try {
                 costModelIterations = Integer.parseInt(split[0]);
@@ -532,6 +703,13 @@ public class MergeContext implements Cloneable {
                 wa = Float.parseFloat(split[4]);
                 ws = Float.parseFloat(split[5]);
                 wo = Float.parseFloat(split[6]);
+
+                if (split.length == 11) {
+                    stagnationWindow = Integer.parseInt(split[7]);
+                    minImprovement = Float.parseFloat(split[8]);
+                    invocationBudget = Long.parseLong(split[9]);
+                    fileBudget = Long.parseLong(split[10]);
+                }
             } catch (NumberFormatException e) {
                 LOG.log(WARNING, e, () -> "The cost model options have an invalid format. Using defaults.");
                 return;
@@ -544,9 +722,14 @@ public class MergeContext implements Cloneable {
             setWa(wa);
             setWs(ws);
             setWo(wo);
+            setCmStagnationWindow(stagnationWindow);
+            setCmMinImprovement(minImprovement);
+            setCmInvocationBudget(invocationBudget);
+            setCmFileBudget(fileBudget);
         });
 
         config.getBoolean(CLI_CM_PARALLEL).ifPresent(this::setCmMatcherParallel);
+        config.getBoolean(CLI_HYBRID_MATCHER).ifPresent(this::setUseHybridMatcher);
 
         config.get(CLI_CM_FIX_PERCENTAGE).ifPresent(opts -> {
             String[] split = opts.trim().split("\\s*,\\s*");
@@ -583,6 +766,9 @@ public class MergeContext implements Cloneable {
                 }
             }
         });
+
+        config.getInteger(CLI_CM_CHAINS).ifPresent(this::setCmChains);
+        config.getInteger(CLI_CM_CANDIDATES).ifPresent(this::setCmCandidates);
     }
 
     /**
@@ -608,7 +794,7 @@ public class MergeContext implements Cloneable {
 
             Boolean twFallback = config.getBoolean(TWOWAY_FALLBACK).orElse(false);
 
-            leftArtifactRoot = new FileArtifact(MergeScenario.LEFT, inputFiles.get(0));
+            leftArtifactRoot = new FileArtifact(MergeScenario.LEFT, inputFiles.get(0), false);
 
             if (!nonExistent.isEmpty()) {
                 if (twFallback && inputFiles.size() == MergeType.THREEWAY_FILES && nonExistent.size() == 1
@@ -648,13 +834,18 @@ public class MergeContext implements Cloneable {
                 }
             }
 
-            List<FileArtifact> inputArtifacts = new ArtifactList<>(inputFiles.size());
+            List<Revision> revisions = inputFiles.stream().map(f -> revSupplier.get()).collect(Collectors.toList());
 
-            for (File file : inputFiles) {
-                FileArtifact artifact = new FileArtifact(revSupplier.get(), file);
-                inputArtifacts.add(artifact);
+            Runtime scan = new Runtime(SCAN_LABEL);
+            List<FileArtifact> inputArtifacts;
+
+            try (Runtime.Measurement m = scan.time()) {
+                inputArtifacts = scanInputFiles(inputFiles, revisions);
             }
 
+            scanRuntime = scan;
+            LOG.fine(() -> String.format("Scanning the input files took %d ms.", scan.getTimeMS()));
+
             if (allFiles && !inputArtifacts.stream().allMatch(FileArtifact::isJavaFile)) {
                 LOG.severe(() -> "Invalid input files. (Must all be java source code files.)");
                 inputFiles.forEach(f -> LOG.severe(f::getAbsolutePath));
@@ -720,6 +911,53 @@ public class MergeContext implements Cloneable {
         config.get(CLI_EXPECTED).ifPresent(e -> expected = Optional.of(e));
     }
 
+    /**
+     * Constructs the <code>FileArtifact</code> trees representing the given input files. The trees are built
+     * concurrently, each one by its own thread.
+     *
+     * @param inputFiles the input files
+     * @param revisions  the <code>Revision</code>s of the input files
+     * @return the <code>FileArtifact</code>s in the order of <code>inputFiles</code>
+     */
+    private static List<FileArtifact> scanInputFiles(List<File> inputFiles, List<Revision> revisions) {
+        ExecutorService executor = Executors.newFixedThreadPool(inputFiles.size());
+        List<Future<FileArtifact>> futures = new ArrayList<>(inputFiles.size());
+
+        try {
+            for (int i = 0; i < inputFiles.size(); i++) {
+                File file = inputFiles.get(i);
+                Revision revision = revisions.get(i);
+
+                futures.add(executor.submit(() -> new FileArtifact(revision, file)));
+            }
+
+            List<FileArtifact> inputArtifacts = new ArtifactList<>(inputFiles.size());
+
+            for (Future<FileArtifact> future : futures) {
+                try {
+                    inputArtifacts.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+
+            return inputArtifacts;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Returns the input files for the merge.
      *
@@ -1113,7 +1351,7 @@ public class MergeContext implements Cloneable {
     }
 
     /**
-     * Returns the list of <code>MergeScenario</code>s on which JDime crashed.
+     * Returns the list of <code>MergeScenario</code>s on which JDime crashed. The returned map is synchronized.
      *
      * @return list of merge scenarios that crashed
      */
@@ -1122,7 +1360,7 @@ public class MergeContext implements Cloneable {
     }
 
     /**
-     * Add a <code>MergeScenario</code> to the list of crashed scenarios.
+     * Add a <code>MergeScenario</code> to the list of crashed scenarios. May be called by multiple threads.
      *
      * @param scenario <code>MergeScenario</code> which crashed
      * @param t        the crash that occurred
@@ -1149,6 +1387,251 @@ public class MergeContext implements Cloneable {
         this.useMCESubtreeMatcher = useMCESubtreeMatcher;
     }
 
+    /**
+     * Returns whether to use the <code>SparseAssignmentMatcher</code> for unordered children during the matching
+     * phase of the merge.
+     *
+     * @return true iff the matcher should be used
+     */
+    public boolean isUseSparseUnorderedMatcher() {
+        return useSparseUnorderedMatcher;
+    }
+
+    /**
+     * Sets whether to use the <code>SparseAssignmentMatcher</code>.
+     *
+     * @param useSparseUnorderedMatcher the new value
+     */
+    public void setUseSparseUnorderedMatcher(boolean useSparseUnorderedMatcher) {
+        this.useSparseUnorderedMatcher = useSparseUnorderedMatcher;
+    }
+
+    /**
+     * Returns whether to use the <code>HybridMatcher</code> instead of the recursive matchers during the matching
+     * phase of the merge.
+     *
+     * @return true iff the matcher should be used
+     */
+    public boolean isUseHybridMatcher() {
+        return useHybridMatcher;
+    }
+
+    /**
+     * Sets whether to use the <code>HybridMatcher</code>.
+     *
+     * @param useHybridMatcher the new value
+     */
+    public void setUseHybridMatcher(boolean useHybridMatcher) {
+        this.useHybridMatcher = useHybridMatcher;
+    }
+
+    /**
+     * Returns the solver for the assignment problems arising when matching unordered children.
+     *
+     * @return the <code>AssignmentSolver</code> to use
+     */
+    public AssignmentSolver getAssignmentSolver() {
+        return assignmentSolver;
+    }
+
+    /**
+     * Sets the solver for the assignment problems arising when matching unordered children.
+     *
+     * @param assignmentSolver the new <code>AssignmentSolver</code>
+     */
+    public void setAssignmentSolver(AssignmentSolver assignmentSolver) {
+        this.assignmentSolver = assignmentSolver;
+    }
+
+    /**
+     * Returns whether the matchers memoize the {@link de.fosd.jdime.matcher.matching.Matchings} of subtree pairs in
+     * a {@link MatchingMemo}.
+     *
+     * @return true iff a {@link MatchingMemo} is used
+     */
+    public boolean isUseMatchingMemo() {
+        return matchingMemo != null;
+    }
+
+    /**
+     * Sets whether to use a {@link MatchingMemo}. Enabling it creates a new empty {@link MatchingMemo}, disabling it
+     * discards the current one.
+     *
+     * @param useMatchingMemo the new value
+     */
+    public void setUseMatchingMemo(boolean useMatchingMemo) {
+
+        if (!useMatchingMemo) {
+            this.matchingMemo = null;
+        } else if (this.matchingMemo == null) {
+            this.matchingMemo = new MatchingMemo();
+        }
+    }
+
+    /**
+     * Returns the {@link MatchingMemo} shared by all matchers of this run.
+     *
+     * @return the {@link MatchingMemo} or {@code null} if {@link #isUseMatchingMemo()} is {@code false}
+     */
+    public MatchingMemo getMatchingMemo() {
+        return matchingMemo;
+    }
+
+    /**
+     * Sets the maximum number of parsed files to keep in memory in the {@link ParseCache} and creates a new
+     * {@link ParseCache}. Caching is disabled if the value is not positive and no directory is set using
+     * {@link #setParseCacheDirectory(Path)}.
+     *
+     * @param parseCacheSize the new value
+     */
+    public void setParseCacheSize(int parseCacheSize) {
+        this.parseCacheSize = parseCacheSize;
+        this.parseCache = createParseCache();
+    }
+
+    /**
+     * Sets the directory the {@link ParseCache} stores the parsed ASTs in across runs and creates a new
+     * {@link ParseCache}. A {@code null} value disables storing ASTs.
+     *
+     * @param parseCacheDirectory the new directory or {@code null}
+     */
+    public void setParseCacheDirectory(Path parseCacheDirectory) {
+        this.parseCacheDirectory = parseCacheDirectory;
+        this.parseCache = createParseCache();
+    }
+
+    /**
+     * Sets the maximum number of parsed files the {@link ParseCache} keeps in its directory and creates a new
+     * {@link ParseCache}.
+     *
+     * @param parseCacheDirectorySize the new value
+     */
+    public void setParseCacheDirectorySize(int parseCacheDirectorySize) {
+        this.parseCacheDirectorySize = parseCacheDirectorySize;
+        this.parseCache = createParseCache();
+    }
+
+    /**
+     * Creates a new {@link ParseCache} as configured by {@link #parseCacheSize}, {@link #parseCacheDirectory} and
+     * {@link #parseCacheDirectorySize}.
+     *
+     * @return the new {@link ParseCache} or {@code null} if parsed ASTs are not to be cached
+     */
+    private ParseCache createParseCache() {
+
+        if (parseCacheSize <= 0 && parseCacheDirectory == null) {
+            return null;
+        }
+
+        return new ParseCache(Math.max(parseCacheSize, 0), parseCacheDirectory, parseCacheDirectorySize);
+    }
+
+    /**
+     * Returns the {@link ParseCache} shared by all merges of this run.
+     *
+     * @return the {@link ParseCache} or {@code null} if parsed ASTs are not cached
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /**
+     * Returns whether to match the child pairs of large nodes in parallel.
+     *
+     * @return true iff child pairs are matched in parallel
+     * @see de.fosd.jdime.matcher.ChildPairMatcher
+     */
+    public boolean isParallelMatching() {
+        return parallelMatching;
+    }
+
+    /**
+     * Sets whether to match the child pairs of large nodes in parallel.
+     *
+     * @param parallelMatching the new value
+     */
+    public void setParallelMatching(boolean parallelMatching) {
+        this.parallelMatching = parallelMatching;
+    }
+
+    /**
+     * Returns the minimum number of child pairs of two nodes for which they are matched in parallel.
+     *
+     * @return the parallel matching threshold
+     */
+    public int getParallelMatchingThreshold() {
+        return parallelMatchingThreshold;
+    }
+
+    /**
+     * Sets the minimum number of child pairs of two nodes for which they are matched in parallel.
+     *
+     * @param parallelMatchingThreshold the new value
+     */
+    public void setParallelMatchingThreshold(int parallelMatchingThreshold) {
+        this.parallelMatchingThreshold = parallelMatchingThreshold;
+    }
+
+    /**
+     * Returns the minimum number of child pairs (left children times right children) of two nodes with ordered
+     * children for which the linear space variant of the ordered matcher is used.
+     *
+     * @return the linear space matching threshold
+     * @see de.fosd.jdime.matcher.ordered.simpleTree.LinearSpaceTreeMatcher
+     */
+    public int getLinearSpaceMatchingThreshold() {
+        return linearSpaceMatchingThreshold;
+    }
+
+    /**
+     * Sets the minimum number of child pairs of two nodes with ordered children for which the linear space variant
+     * of the ordered matcher is used.
+     *
+     * @param linearSpaceMatchingThreshold the new value
+     */
+    public void setLinearSpaceMatchingThreshold(int linearSpaceMatchingThreshold) {
+        this.linearSpaceMatchingThreshold = linearSpaceMatchingThreshold;
+    }
+
+    /**
+     * Returns the number of threads merging the Java files of a directory merge in parallel. 1 means the files are
+     * merged sequentially, values smaller than 1 mean one thread per available processor.
+     *
+     * @return the number of directory merge threads
+     * @see FileMergeScheduler
+     */
+    public int getDirectoryMergeThreads() {
+        return directoryMergeThreads;
+    }
+
+    /**
+     * Sets the number of threads merging the Java files of a directory merge in parallel.
+     *
+     * @param directoryMergeThreads the new value
+     */
+    public void setDirectoryMergeThreads(int directoryMergeThreads) {
+        this.directoryMergeThreads = directoryMergeThreads;
+    }
+
+    /**
+     * Returns the {@link FileMergeScheduler} collecting the file merges of the directory merge currently being
+     * performed.
+     *
+     * @return the {@link FileMergeScheduler} or {@code null} if files are to be merged immediately
+     */
+    public FileMergeScheduler getFileMergeScheduler() {
+        return fileMergeScheduler;
+    }
+
+    /**
+     * Sets the {@link FileMergeScheduler} collecting the file merges of the directory merge currently being performed.
+     *
+     * @param fileMergeScheduler the new value, {@code null} to merge files immediately
+     */
+    public void setFileMergeScheduler(FileMergeScheduler fileMergeScheduler) {
+        this.fileMergeScheduler = fileMergeScheduler;
+    }
+
     /**
      * Returns whether the {@link StructuredStrategy} should act semi-structured, that is whether it should perform line
      * based merging on the configured {@link #semiStructuredLevel}.
@@ -1345,6 +1828,86 @@ public class MergeContext implements Cloneable {
         this.cmMatcherFixRandomPercentage = cmMatcherFixRandomPercentage;
     }
 
+    public int getCmChains() {
+        return cmChains;
+    }
+
+    public void setCmChains(int cmChains) {
+        this.cmChains = cmChains;
+    }
+
+    public int getCmCandidates() {
+        return cmCandidates;
+    }
+
+    public void setCmCandidates(int cmCandidates) {
+        this.cmCandidates = cmCandidates;
+    }
+
+    public int getCmStagnationWindow() {
+        return cmStagnationWindow;
+    }
+
+    public void setCmStagnationWindow(int cmStagnationWindow) {
+        this.cmStagnationWindow = cmStagnationWindow;
+    }
+
+    public float getCmMinImprovement() {
+        return cmMinImprovement;
+    }
+
+    public void setCmMinImprovement(float cmMinImprovement) {
+        this.cmMinImprovement = cmMinImprovement;
+    }
+
+    public long getCmInvocationBudget() {
+        return cmInvocationBudget;
+    }
+
+    public void setCmInvocationBudget(long cmInvocationBudget) {
+        this.cmInvocationBudget = cmInvocationBudget;
+    }
+
+    public long getCmFileBudget() {
+        return cmFileBudget;
+    }
+
+    public void setCmFileBudget(long cmFileBudget) {
+        this.cmFileBudget = cmFileBudget;
+    }
+
+    /**
+     * Returns the {@link Runtime} accumulating the time and iterations spent in the cost model matcher for the file
+     * currently being merged.
+     *
+     * @return the {@link Runtime} or {@code null} if none is being recorded
+     */
+    public Runtime getCostModelRuntime() {
+        return costModelRuntime;
+    }
+
+    /**
+     * Sets the {@link Runtime} accumulating the time and iterations spent in the cost model matcher for the file
+     * currently being merged. The per-file budget of the cost model matcher is measured against this
+     * {@link Runtime}.
+     *
+     * @param costModelRuntime
+     *         the {@link Runtime} or {@code null} to stop recording
+     */
+    public void setCostModelRuntime(Runtime costModelRuntime) {
+        this.costModelRuntime = costModelRuntime;
+    }
+
+    /**
+     * Returns the {@link Runtime} measuring the time it took to scan the input files and to build their
+     * {@link FileArtifact} trees.
+     *
+     * @return the {@link Runtime} or {@code null} if the input files were not configured from a {@link JDimeConfig}
+     */
+    public Runtime getScanRuntime() {
+        return scanRuntime;
+    }
+
     /**
      * Get corresponding expected artifact.
      *
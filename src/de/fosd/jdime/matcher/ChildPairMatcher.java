@@ -0,0 +1,192 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.cost_model.CMMode;
+import de.fosd.jdime.matcher.matching.Matchings;
+
+/**
+ * Computes the {@link Matchings} for all pairs of children of two {@link Artifact Artifacts}. This is the table the
+ * {@link de.fosd.jdime.matcher.ordered.simpleTree.SimpleTreeMatcher} and the
+ * {@link de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentProblemMatcher} base their decisions on.
+ * <p>
+ * The child pairs are independent of each other. If {@link MergeContext#isParallelMatching()} is set and there are
+ * at least {@link MergeContext#getParallelMatchingThreshold()} pairs, the table is filled by tasks running in the
+ * {@link ForkJoinPool#commonPool() common pool}. Recursive calls from within these tasks fork into the same pool.
+ * Every cell is computed by exactly one call to the recursive matcher, the resulting table is therefore identical
+ * to the one computed sequentially.
+ */
+public final class ChildPairMatcher {
+
+    /**
+     * Fills the cells {@code [from, to)} of the row-major table.
+     *
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    private static final class FillTask<T extends Artifact<T>> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MergeContext context;
+        private final MatcherInterface<T> matcher;
+        private final T left;
+        private final T right;
+        private final Matchings<T>[][] table;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private FillTask(MergeContext context, MatcherInterface<T> matcher, T left, T right, Matchings<T>[][] table,
+                         int from, int to, int grain) {
+            this.context = context;
+            this.matcher = matcher;
+            this.left = left;
+            this.right = right;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= grain) {
+                fill(context, matcher, left, right, table, from, to);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+
+            invokeAll(new FillTask<>(context, matcher, left, right, table, from, mid, grain),
+                      new FillTask<>(context, matcher, left, right, table, mid, to, grain));
+        }
+    }
+
+    private ChildPairMatcher() {
+        // UTILITY CLASS
+    }
+
+    /**
+     * Returns a table containing at index {@code [i][j]} the {@link Matchings} computed by {@code matcher} for the
+     * i-th child of {@code left} and the j-th child of {@code right}.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param matcher
+     *         the matcher to use for the child pairs
+     * @param left
+     *         the left {@link Artifact}
+     * @param right
+     *         the right {@link Artifact}
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the table of child {@link Matchings}
+     */
+    public static <T extends Artifact<T>> Matchings<T>[][] matchChildren(MergeContext context,
+                                                                         MatcherInterface<T> matcher,
+                                                                         T left, T right) {
+        int m = left.getNumChildren();
+        int n = right.getNumChildren();
+
+        @SuppressWarnings("unchecked")
+        Matchings<T>[][] table = (Matchings<T>[][]) new Matchings<?>[m][n];
+
+        int cells = m * n;
+
+        if (!parallel(context, cells)) {
+            fill(context, matcher, left, right, table, 0, cells);
+            return table;
+        }
+
+        int grain = Math.max(1, cells / (8 * ForkJoinPool.getCommonPoolParallelism()));
+        FillTask<T> task = new FillTask<>(context, matcher, left, right, table, 0, cells, grain);
+
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+
+        return table;
+    }
+
+    /**
+     * Returns whether a table with the given number of cells is to be filled in parallel.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param cells
+     *         the number of cells
+     * @return true iff the table is to be filled in parallel
+     */
+    private static boolean parallel(MergeContext context, int cells) {
+        return context.isParallelMatching()
+                && cells >= context.getParallelMatchingThreshold()
+                && context.getCMMatcherMode() != CMMode.INTEGRATED; // the CostModelMatcher is not thread safe
+    }
+
+    /**
+     * Sequentially fills the cells {@code [from, to)} of the row-major table.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param matcher
+     *         the matcher to use for the child pairs
+     * @param left
+     *         the left {@link Artifact}
+     * @param right
+     *         the right {@link Artifact}
+     * @param table
+     *         the table to fill
+     * @param from
+     *         the first cell to fill
+     * @param to
+     *         the cell after the last one to fill
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    private static <T extends Artifact<T>> void fill(MergeContext context, MatcherInterface<T> matcher, T left,
+                                                     T right, Matchings<T>[][] table, int from, int to) {
+        int n = right.getNumChildren();
+
+        for (int cell = from; cell < to; cell++) {
+            int i = cell / n;
+            int j = cell % n;
+
+            table[i][j] = matcher.match(context, left.getChild(i), right.getChild(j));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import de.fosd.jdime.artifact.Artifact;
+
+/**
+ * An index over the {@link TreeSnapshot TreeSnapshots} of the trees being matched by a {@link Matcher} that answers
+ * its look-ahead queries. For every label of a snapshot the index stores the pre-order indices of the nodes with that
+ * label in ascending order. Finding the first node (in pre-order) of a subtree that matches a given node and lies
+ * within a maximum depth therefore is a binary search followed by a scan of the nodes with the same label in the
+ * subtree instead of a walk over the whole subtree.
+ * <p>
+ * A {@link LookAheadIndex} is immutable after construction and may be queried by multiple threads.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+final class LookAheadIndex<T extends Artifact<T>> {
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final TreeSnapshot<T>[] trees;
+    private final int[][][] byLabel;
+
+    /**
+     * Constructs a new {@link LookAheadIndex} over the given snapshots. All snapshots must have been constructed
+     * using the same {@link TreeSnapshot.Labels} dictionary.
+     *
+     * @param trees
+     *         the snapshots of the trees to index
+     */
+    @SafeVarargs
+    LookAheadIndex(TreeSnapshot<T>... trees) {
+        this.trees = trees;
+        this.byLabel = new int[trees.length][][];
+
+        for (int t = 0; t < trees.length; t++) {
+            TreeSnapshot<T> tree = trees[t];
+            int numLabels = tree.getLabels().numLabels();
+            int[] counts = new int[numLabels];
+
+            for (int i = 0; i < tree.size(); i++) {
+                counts[tree.label(i)]++;
+            }
+
+            int[][] nodes = new int[numLabels][];
+
+            for (int label = 0; label < numLabels; label++) {
+                nodes[label] = counts[label] == 0 ? NO_NODES : new int[counts[label]];
+                counts[label] = 0;
+            }
+
+            for (int i = 0; i < tree.size(); i++) {
+                int label = tree.label(i);
+                nodes[label][counts[label]++] = i;
+            }
+
+            byLabel[t] = nodes;
+        }
+    }
+
+    /**
+     * Returns whether the given <code>node</code> is part of one of the indexed trees.
+     *
+     * @param node
+     *         the node to check
+     * @return true iff <code>node</code> is indexed
+     */
+    boolean contains(T node) {
+
+        for (TreeSnapshot<T> tree : trees) {
+
+            if (tree.indexOf(node) != -1) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the first node in pre-order of the subtree rooted in <code>tree</code> that matches
+     * <code>nodeToFind</code> as per the {@link Artifact#matches(Artifact)} method and is at most
+     * <code>maxDepth</code> levels below <code>tree</code>.
+     *
+     * @param tree
+     *         the indexed tree to search in
+     * @param nodeToFind
+     *         the node to find a match for
+     * @param maxDepth
+     *         the maximum depth of nodes to consider (<code>tree</code> is at depth 0)
+     * @return optionally a matching node for <code>nodeToFind</code>
+     * @throws IllegalArgumentException
+     *         if <code>tree</code> is not indexed
+     */
+    Optional<T> find(T tree, T nodeToFind, int maxDepth) {
+        int t = 0;
+        int number = -1;
+
+        for (; t < trees.length && number == -1; t++) {
+            number = trees[t].indexOf(tree);
+        }
+
+        if (number == -1) {
+            throw new IllegalArgumentException(tree + " is not part of an indexed tree.");
+        }
+
+        TreeSnapshot<T> snapshot = trees[--t];
+
+        if (maxDepth < 0) {
+            return Optional.empty();
+        }
+
+        int label = label(nodeToFind);
+        int[] candidates = label < 0 || label >= byLabel[t].length ? NO_NODES : byLabel[t][label];
+        int i = Arrays.binarySearch(candidates, number);
+
+        if (i < 0) {
+            i = -i - 1;
+        }
+
+        long maxAbsDepth = (long) snapshot.depth(number) + maxDepth;
+        int end = snapshot.end(number);
+
+        for (; i < candidates.length && candidates[i] < end; i++) {
+            int candidate = candidates[i];
+
+            if (snapshot.depth(candidate) <= maxAbsDepth) {
+                T node = snapshot.node(candidate);
+
+                if (node.matches(nodeToFind)) {
+                    return Optional.of(node);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the label id of the given <code>node</code> or -1 if no indexed node has its label.
+     *
+     * @param node
+     *         the node whose label is to be returned
+     * @return the label id or -1
+     */
+    private int label(T node) {
+
+        for (TreeSnapshot<T> tree : trees) {
+            int i = tree.indexOf(node);
+
+            if (i != -1) {
+                return tree.label(i);
+            }
+        }
+
+        return trees.length == 0 ? -1 : trees[0].getLabels().labelOf(node.getMatchingKey());
+    }
+}
@@ -26,8 +26,10 @@
  */
 package de.fosd.jdime.matcher;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -38,6 +40,7 @@ import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.Revision;
 import de.fosd.jdime.matcher.cost_model.CMMode;
 import de.fosd.jdime.matcher.cost_model.CostModelMatcher;
+import de.fosd.jdime.matcher.hybrid.HybridMatcher;
 import de.fosd.jdime.matcher.matching.Color;
 import de.fosd.jdime.matcher.matching.LookAheadMatching;
 import de.fosd.jdime.matcher.matching.Matching;
@@ -45,12 +48,16 @@ import de.fosd.jdime.matcher.matching.Matchings;
 import de.fosd.jdime.matcher.ordered.EqualityMatcher;
 import de.fosd.jdime.matcher.ordered.OrderedMatcher;
 import de.fosd.jdime.matcher.ordered.mceSubtree.MCESubtreeMatcher;
+import de.fosd.jdime.matcher.ordered.simpleTree.LinearSpaceTreeMatcher;
 import de.fosd.jdime.matcher.ordered.simpleTree.SimpleTreeMatcher;
 import de.fosd.jdime.matcher.unordered.IdenticalSubtreeMatcher;
 import de.fosd.jdime.matcher.unordered.UniqueLabelMatcher;
 import de.fosd.jdime.matcher.unordered.UnorderedMatcher;
-import de.fosd.jdime.matcher.unordered.assignmentProblem.HungarianMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentProblemMatcher;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.AssignmentSolver;
+import de.fosd.jdime.matcher.unordered.assignmentProblem.SparseAssignmentMatcher;
 import de.fosd.jdime.stats.KeyEnums;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.strdump.DumpMode;
 import de.fosd.jdime.util.UnorderedTuple;
 
@@ -85,21 +92,26 @@ public class Matcher<T extends Artifact<T>> {
     private static final Logger LOG = Logger.getLogger(Matcher.class.getCanonicalName());
     private static final String ID = Matcher.class.getSimpleName();
 
-    private UnorderedMatcher<T> unorderedMatcher;
+    private Map<AssignmentSolver, UnorderedMatcher<T>> unorderedMatchers;
+    private Map<AssignmentSolver, UnorderedMatcher<T>> sparseUnorderedMatchers;
     private UnorderedMatcher<T> unorderedLabelMatcher;
     private OrderedMatcher<T> orderedMatcher;
+    private OrderedMatcher<T> linearSpaceOrderedMatcher;
     private OrderedMatcher<T> mceSubtreeMatcher;
 
     private IdenticalSubtreeMatcher<T> idSubtreeMatcher;
 
     private CostModelMatcher<T> cmMatcher;
+    private HybridMatcher<T> hybridMatcher;
 
     private T leftRoot;
     private T rightRoot;
 
-    private Map<T, MatcherCache<T>> caches;
-    private MatcherCache<T> leftCache;
-    private MatcherCache<T> rightCache;
+    private MatchingMemo memo;
+    private List<Object> memoConfig;
+    private MergeScenarioStatistics memoStatistics;
+
+    private LookAheadIndex<T> lookAheadIndex;
 
     /**
      * Constructs a new {@link Matcher} matching the given trees.
@@ -116,26 +128,36 @@ public class Matcher<T extends Artifact<T>> {
             return match(context, left, right);
         };
 
-        this.unorderedMatcher = new HungarianMatcher<>(rootMatcher);
+        this.unorderedMatchers = new EnumMap<>(AssignmentSolver.class);
+        this.sparseUnorderedMatchers = new EnumMap<>(AssignmentSolver.class);
+
+        for (AssignmentSolver solver : AssignmentSolver.values()) {
+            AssignmentProblemMatcher<T> unorderedMatcher = solver.create(rootMatcher);
+
+            this.unorderedMatchers.put(solver, unorderedMatcher);
+            this.sparseUnorderedMatchers.put(solver, new SparseAssignmentMatcher<>(rootMatcher, unorderedMatcher));
+        }
+
         this.unorderedLabelMatcher = new UniqueLabelMatcher<>(rootMatcher);
         this.orderedMatcher = new SimpleTreeMatcher<>(rootMatcher);
+        this.linearSpaceOrderedMatcher = new LinearSpaceTreeMatcher<>(rootMatcher);
         this.mceSubtreeMatcher = new MCESubtreeMatcher<>(rootMatcher);
 
         this.idSubtreeMatcher = new IdenticalSubtreeMatcher<>();
         this.cmMatcher = new CostModelMatcher<>();
+        this.hybridMatcher = new HybridMatcher<>();
 
         this.leftRoot = leftRoot;
         this.rightRoot = rightRoot;
-
-        this.caches = new HashMap<>();
     }
 
     /**
-     * Constructs a new {@link Matcher} matching the given trees. All caches from {@code oldMatcher} will be reused.
+     * Constructs a new {@link Matcher} matching the given trees. The properties of the trees the {@link Matcher}
+     * uses to choose a matching algorithm are cached in the {@link Artifact Artifacts} themselves (see
+     * {@link Artifact#isFullyOrdered()}) and are therefore reused from {@code oldMatcher} without any copying.
      *
      * @param oldMatcher
-     *         the {@link Matcher} whose caches are to be reused, for convenience it may be {@code null} in which case
-     *         it is ignored
+     *         the {@link Matcher} that matched the trees before, for convenience it may be {@code null}
      * @param leftRoot
      *         the root of the left tree
      * @param rightRoot
@@ -143,20 +165,6 @@ public class Matcher<T extends Artifact<T>> {
      */
     public Matcher(Matcher<T> oldMatcher, T leftRoot, T rightRoot) {
         this(leftRoot, rightRoot);
-
-        if (oldMatcher != null) {
-            this.caches.putAll(oldMatcher.caches);
-        }
-    }
-
-    /**
-     * Removes all cached data concerning the given tree.
-     *
-     * @param root
-     *         the root of the tree whose cached information is the be removed
-     */
-    public void removeCache(T root) {
-        caches.remove(root);
     }
 
     /**
@@ -174,10 +182,29 @@ public class Matcher<T extends Artifact<T>> {
 
         if (context.getCMMatcherMode() == CMMode.REPLACEMENT) {
             matchings = cmMatcher.match(context, leftRoot, rightRoot);
+        } else if (context.isUseHybridMatcher() && !context.isConditionalMerge()) {
+            matchings = hybridMatcher.match(context, leftRoot, rightRoot);
         } else {
-            leftCache = caches.computeIfAbsent(leftRoot, i -> new MatcherCache<>());
-            rightCache = caches.computeIfAbsent(rightRoot, i -> new MatcherCache<>());
-            idSubtreeMatcher.matchTrees(leftRoot, rightRoot);
+            // computes the flags used by computeMatchings for all nodes before matching (possibly in parallel) begins
+            leftRoot.isFullyOrdered();
+            rightRoot.isFullyOrdered();
+
+            TreeSnapshot.Labels<T> labels = new TreeSnapshot.Labels<>();
+            TreeSnapshot<T> leftTree = new TreeSnapshot<>(leftRoot, labels);
+            TreeSnapshot<T> rightTree = new TreeSnapshot<>(rightRoot, labels);
+
+            idSubtreeMatcher.matchTrees(leftTree, rightTree);
+            lookAheadIndex = context.isLookAhead() ? new LookAheadIndex<>(leftTree, rightTree) : null;
+
+            if (context.isUseMatchingMemo() && !context.isConditionalMerge()
+                    && context.getCMMatcherMode() != CMMode.INTEGRATED) {
+                memo = context.getMatchingMemo();
+                memoConfig = memoConfig(context);
+                memoStatistics = context.hasStatistics()
+                        ? context.getStatistics().getCurrentFileMergeScenarioStatistics() : null;
+            } else {
+                memo = null;
+            }
 
             matchings = match(context, leftRoot, rightRoot);
 
@@ -232,20 +259,7 @@ public class Matcher<T extends Artifact<T>> {
                 return String.format("%s encountered a choice node (%s)", name, left.getId());
             });
 
-            Map<Integer, Matchings<T>> variantMatches = new HashMap<>();
-
-            for (T variant: left.getVariants().values()) {
-                LOG.finest(() -> {
-                    String name = getClass().getSimpleName();
-                    return String.format("%s.match(%s, %s)", name, variant.getId(), right.getId());
-                });
-
-                Matchings<T> cur = match(context, variant, right);
-                Matching<T> highest = cur.get(variant, right).get();
-                variantMatches.put(highest.getScore(), cur);
-            }
-
-            Matchings<T> maxMatching = variantMatches.get(Collections.max(variantMatches.keySet()));
+            Matchings<T> maxMatching = VariantMatcher.matchVariants(context, this::match, left, right);
 
             LOG.finest(() -> {
                 String name = this.getClass().getSimpleName();
@@ -324,8 +338,12 @@ public class Matcher<T extends Artifact<T>> {
     }
 
     /**
-     * Determines which <code>Matcher</code> to use for matching <code>left</code> and <code>right</code> and returns
-     * the resulting <code>Matchings</code>.
+     * Returns the <code>Matchings</code> for <code>left</code> and <code>right</code> from the {@link MatchingMemo}
+     * if it is enabled and contains them. Otherwise they are computed using
+     * {@link #computeMatchings(MergeContext, Artifact, Artifact)} and memoized. Which subtrees of the trees the
+     * <code>IdenticalSubtreeMatcher</code> matched depends on the subtree hashes that are unique in the whole trees
+     * being matched, these anchored pairs are therefore part of the key. Hits and misses are counted in the
+     * statistics of the current merge scenario.
      *
      * @param context
      *         the <code>MergeContext</code>
@@ -336,16 +354,70 @@ public class Matcher<T extends Artifact<T>> {
      * @return the <code>Matchings</code>
      */
     private Matchings<T> getMatchings(MergeContext context, T left, T right) {
-        boolean fullyOrderedChildren = false;
 
-        if (context.isUseMCESubtreeMatcher()) {
-            boolean leftOrdered = left.getChildren().stream().allMatch(c -> leftCache.fullyOrdered(c));
-            boolean rightOrdered = right.getChildren().stream().allMatch(c -> rightCache.fullyOrdered(c));
-            fullyOrderedChildren = leftOrdered && rightOrdered;
+        if (memo != null && memo.applicable(left, right)) {
+            int[] anchors = idSubtreeMatcher.anchors(left, right);
+            Optional<Matchings<T>> memoized = memo.get(left, right, memoConfig, anchors);
+
+            if (memoized.isPresent()) {
+
+                if (memoStatistics != null) {
+                    memoStatistics.incrementMatchingMemoHits();
+                }
+
+                logMatcherUse(MatchingMemo.class, left, right);
+                return memoized.get();
+            }
+
+            if (memoStatistics != null) {
+                memoStatistics.incrementMatchingMemoMisses();
+            }
+
+            Matchings<T> matchings = computeMatchings(context, left, right);
+            memo.put(left, right, memoConfig, anchors, matchings);
+
+            return matchings;
+        }
+
+        return computeMatchings(context, left, right);
+    }
+
+    /**
+     * Returns the values of the configuration options in the given {@link MergeContext} that influence the
+     * {@link Matchings} computed for a pair of subtrees.
+     *
+     * @param context
+     *         the <code>MergeContext</code>
+     * @return the configuration for use with the {@link MatchingMemo}
+     */
+    private static List<Object> memoConfig(MergeContext context) {
+        List<Integer> lookAheads = new ArrayList<>();
+
+        for (KeyEnums.Type type : KeyEnums.Type.values()) {
+            lookAheads.add(context.getLookahead(type));
         }
 
-        boolean onlyOrderedChildren = leftCache.orderedChildren(left) && rightCache.orderedChildren(right);
-        boolean onlyLabeledChildren = leftCache.uniquelyLabeledChildren(left) && rightCache.uniquelyLabeledChildren(right);
+        return Arrays.asList(context.isUseMCESubtreeMatcher(), context.isUseSparseUnorderedMatcher(),
+                             context.getAssignmentSolver(), context.isLookAhead(), lookAheads,
+                             context.getLinearSpaceMatchingThreshold());
+    }
+
+    /**
+     * Determines which <code>Matcher</code> to use for matching <code>left</code> and <code>right</code> and returns
+     * the resulting <code>Matchings</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code>
+     * @param left
+     *         the left tree
+     * @param right
+     *         the right tree
+     * @return the <code>Matchings</code>
+     */
+    private Matchings<T> computeMatchings(MergeContext context, T left, T right) {
+        boolean fullyOrderedChildren = left.hasFullyOrderedChildren() && right.hasFullyOrderedChildren();
+        boolean onlyOrderedChildren = left.hasOrderedChildren() && right.hasOrderedChildren();
+        boolean onlyLabeledChildren = left.hasUniquelyLabeledChildren() && right.hasUniquelyLabeledChildren();
 
         Matchings<T> matchings;
 
@@ -353,13 +425,25 @@ public class Matcher<T extends Artifact<T>> {
             logMatcherUse(mceSubtreeMatcher.getClass(), left, right);
             matchings = mceSubtreeMatcher.match(context, left, right);
         } else if (onlyOrderedChildren) {
-            logMatcherUse(orderedMatcher.getClass(), left, right);
-            matchings = orderedMatcher.match(context, left, right);
+            long childPairs = (long) left.getNumChildren() * right.getNumChildren();
+
+            if (childPairs >= context.getLinearSpaceMatchingThreshold()) {
+                logMatcherUse(linearSpaceOrderedMatcher.getClass(), left, right);
+                matchings = linearSpaceOrderedMatcher.match(context, left, right);
+            } else {
+                logMatcherUse(orderedMatcher.getClass(), left, right);
+                matchings = orderedMatcher.match(context, left, right);
+            }
         } else {
             if (onlyLabeledChildren) {
                 logMatcherUse(unorderedLabelMatcher.getClass(), left, right);
                 matchings = unorderedLabelMatcher.match(context, left, right);
+            } else if (context.isUseSparseUnorderedMatcher()) {
+                UnorderedMatcher<T> sparseUnorderedMatcher = sparseUnorderedMatchers.get(context.getAssignmentSolver());
+                logMatcherUse(sparseUnorderedMatcher.getClass(), left, right);
+                matchings = sparseUnorderedMatcher.match(context, left, right);
             } else {
+                UnorderedMatcher<T> unorderedMatcher = unorderedMatchers.get(context.getAssignmentSolver());
                 logMatcherUse(unorderedMatcher.getClass(), left, right);
                 matchings = unorderedMatcher.match(context, left, right);
             }
@@ -436,8 +520,10 @@ public class Matcher<T extends Artifact<T>> {
     }
 
     /**
-     * Performs a depth first search of the given <code>tree</code> and returns the first node matching
-     * <code>nodeToFind</code> as per the {@link Artifact#matches(Artifact)} method.
+     * Returns the first node of the given <code>tree</code> in depth first order matching <code>nodeToFind</code> as
+     * per the {@link Artifact#matches(Artifact)} method. If <code>tree</code> is part of the trees this
+     * {@link Matcher} was constructed for, the node is found using the {@link LookAheadIndex} built for them.
+     * Otherwise a depth first search of the given <code>tree</code> is performed.
      *
      * @param tree
      *         the tree to search in
@@ -449,6 +535,10 @@ public class Matcher<T extends Artifact<T>> {
      */
     private Optional<T> findMatchingNode(T tree, T nodeToFind, int maxDepth) {
 
+        if (lookAheadIndex != null && lookAheadIndex.contains(tree)) {
+            return lookAheadIndex.find(tree, nodeToFind, maxDepth);
+        }
+
         if (maxDepth < 0) {
             return Optional.empty();
         }
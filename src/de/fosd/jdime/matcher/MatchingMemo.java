@@ -0,0 +1,318 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.matcher.matching.LookAheadMatching;
+import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.matcher.unordered.IdenticalSubtreeMatcher;
+
+/**
+ * A memo table for the {@link Matchings} computed for pairs of subtrees. Entries are keyed by the
+ * {@link Artifact#getStructuralHash() structural hashes} of the two subtrees, the values of the matcher
+ * configuration options and the pairs of identical subtrees the {@link IdenticalSubtreeMatcher} anchored inside the
+ * two subtrees. They store the shape of the {@link Matchings}, that is the scores of all {@link Matching Matchings}
+ * and the positions of the matched nodes in a depth-first traversal of the subtrees. Since the shape does not refer
+ * to any concrete {@link Artifact}, one {@link MatchingMemo} can be shared by all {@link Matcher Matchers} of a run.
+ * This includes the base/left, base/right and left/right phases of a three-way merge as well as the {@link Matcher
+ * Matchers} for different files. Only {@link Matchings} that depend on nothing but the key may be memoized, otherwise
+ * the result of a merge would depend on the order of the memoized phases.
+ * <p>
+ * A {@link MatchingMemo} is safe for use by multiple threads. It holds at most {@link #MAX_ENTRIES} entries and evicts
+ * the least recently used ones.
+ */
+public final class MatchingMemo {
+
+    /**
+     * The minimum tree size both subtrees must have for their {@link Matchings} to be memoized. Smaller subtrees are
+     * cheaper to match again than to look up and translate.
+     */
+    public static final int MIN_TREE_SIZE = 8;
+
+    /**
+     * The maximum number of entries.
+     */
+    public static final int MAX_ENTRIES = 50_000;
+
+    /**
+     * The key of the memo table.
+     */
+    private static final class Key {
+
+        private final TreeHash left;
+        private final TreeHash right;
+        private final List<?> config;
+        private final int[] anchors;
+
+        private Key(TreeHash left, TreeHash right, List<?> config, int[] anchors) {
+            this.left = left;
+            this.right = right;
+            this.config = config;
+            this.anchors = anchors;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return left.equals(key.left) && right.equals(key.right) && config.equals(key.config)
+                    && Arrays.equals(anchors, key.anchors);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(left, right, config) + Arrays.hashCode(anchors);
+        }
+    }
+
+    /**
+     * The shape of memoized {@link Matchings}. For the i-th {@link Matching}, {@code indices[2 * i]} and
+     * {@code indices[2 * i + 1]} are the depth-first indices of its left and right {@link Artifact} in the subtrees.
+     */
+    private static final class Shape {
+
+        private final int leftSize;
+        private final int rightSize;
+
+        private final int[] indices;
+        private final int[] scores;
+        private final String[] algorithms;
+
+        private Shape(int leftSize, int rightSize, int numMatchings) {
+            this.leftSize = leftSize;
+            this.rightSize = rightSize;
+            this.indices = new int[2 * numMatchings];
+            this.scores = new int[numMatchings];
+            this.algorithms = new String[numMatchings];
+        }
+    }
+
+    private final Map<Key, Shape> memo;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Constructs a new empty {@link MatchingMemo}.
+     */
+    public MatchingMemo() {
+        this.memo = new LinkedHashMap<Key, Shape>(16, .75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Shape> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Returns whether {@link Matchings} between the given trees are memoized at all. This is the case if both trees
+     * have at least {@link #MIN_TREE_SIZE} nodes.
+     *
+     * @param left
+     *         the left tree
+     * @param right
+     *         the right tree
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return whether the trees are eligible for memoization
+     */
+    public <T extends Artifact<T>> boolean applicable(T left, T right) {
+        return left.getTreeSize() >= MIN_TREE_SIZE && right.getTreeSize() >= MIN_TREE_SIZE;
+    }
+
+    /**
+     * Optionally returns the memoized {@link Matchings} for the given trees translated to the {@link Artifact
+     * Artifacts} in {@code left} and {@code right}. Counts a hit or a miss.
+     *
+     * @param left
+     *         the left tree
+     * @param right
+     *         the right tree
+     * @param config
+     *         the values of the matcher configuration options
+     * @param anchors
+     *         the pairs of identical subtrees anchored inside the trees, see
+     *         {@link IdenticalSubtreeMatcher#anchors(Artifact, Artifact)}
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return optionally the memoized {@link Matchings}
+     */
+    public <T extends Artifact<T>> Optional<Matchings<T>> get(T left, T right, List<?> config, int[] anchors) {
+        Key key = new Key(left.getStructuralHash(), right.getStructuralHash(), config, anchors);
+        Shape shape;
+
+        synchronized (memo) {
+            shape = memo.get(key);
+        }
+
+        if (shape == null || shape.leftSize != left.getTreeSize() || shape.rightSize != right.getTreeSize()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+
+        List<T> lNodes = Artifacts.dfs(left);
+        List<T> rNodes = Artifacts.dfs(right);
+        Matchings<T> matchings = new Matchings<>();
+
+        for (int i = 0; i < shape.scores.length; i++) {
+            T l = lNodes.get(shape.indices[2 * i]);
+            T r = rNodes.get(shape.indices[2 * i + 1]);
+            Matching<T> matching = new Matching<>(l, r, shape.scores[i]);
+
+            matching.setAlgorithm(shape.algorithms[i]);
+            matchings.add(matching);
+        }
+
+        return Optional.of(matchings);
+    }
+
+    /**
+     * Memoizes the shape of the given {@link Matchings} computed for {@code left} and {@code right}. Nothing is stored
+     * if the {@link Matchings} contain {@link LookAheadMatching LookAheadMatchings} or {@link Artifact Artifacts}
+     * outside of the two trees.
+     *
+     * @param left
+     *         the left tree
+     * @param right
+     *         the right tree
+     * @param config
+     *         the values of the matcher configuration options
+     * @param anchors
+     *         the pairs of identical subtrees anchored inside the trees, see
+     *         {@link IdenticalSubtreeMatcher#anchors(Artifact, Artifact)}
+     * @param matchings
+     *         the {@link Matchings} computed for {@code left} and {@code right}
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    public <T extends Artifact<T>> void put(T left, T right, List<?> config, int[] anchors, Matchings<T> matchings) {
+        Map<T, Integer> lIndices = dfsIndices(left);
+        Map<T, Integer> rIndices = dfsIndices(right);
+        Shape shape = new Shape(lIndices.size(), rIndices.size(), matchings.size());
+
+        int i = 0;
+
+        for (Matching<T> matching : matchings) {
+
+            if (matching instanceof LookAheadMatching) {
+                return;
+            }
+
+            Integer lIndex = lIndices.get(matching.getLeft());
+            Integer rIndex = rIndices.get(matching.getRight());
+
+            if (lIndex == null || rIndex == null) {
+                return;
+            }
+
+            shape.indices[2 * i] = lIndex;
+            shape.indices[2 * i + 1] = rIndex;
+            shape.scores[i] = matching.getScore();
+            shape.algorithms[i] = matching.getAlgorithm();
+            i++;
+        }
+
+        Key key = new Key(left.getStructuralHash(), right.getStructuralHash(), config, anchors);
+
+        synchronized (memo) {
+            memo.put(key, shape);
+        }
+    }
+
+    /**
+     * Returns the indices of the nodes of the given tree in depth-first order.
+     *
+     * @param root
+     *         the root of the tree
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the depth-first indices by node
+     */
+    private static <T extends Artifact<T>> Map<T, Integer> dfsIndices(T root) {
+        Map<T, Integer> indices = new IdentityHashMap<>();
+
+        for (T artifact : Artifacts.dfsIterable(root)) {
+            indices.put(artifact, indices.size());
+        }
+
+        return indices;
+    }
+
+    /**
+     * Returns the number of lookups that found memoized {@link Matchings}.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find memoized {@link Matchings}.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits();
+        long total = h + getMisses();
+        double rate = total == 0 ? 0 : 100.0 * h / total;
+
+        return String.format("%s: %d hits, %d misses (%.1f%% hit rate)", getClass().getSimpleName(), h, total - h, rate);
+    }
+}
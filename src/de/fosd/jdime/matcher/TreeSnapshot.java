@@ -0,0 +1,395 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.TreeHash;
+
+/**
+ * A read-only snapshot of a tree of {@link Artifact Artifacts} stored in flat arrays. The nodes are numbered in
+ * pre-order, the subtree of node {@code i} therefore consists of the nodes {@code [i, end(i))}. For every node the
+ * snapshot stores its parent, first child and next sibling, its subtree size and depth, its
+ * {@link Artifact#getStructuralHash() structural hash} as well as a label id. Matchers that repeatedly scan
+ * whole trees work on these arrays instead of following the child lists of the {@link Artifact Artifacts}.
+ * <p>
+ * Label ids are assigned by a {@link Labels} dictionary. Snapshots that are constructed using the same dictionary
+ * share their ids. Nodes with equal labels have equal {@link Artifact#getMatchingKey() matching keys}.
+ * <p>
+ * A {@link TreeSnapshot} does not reflect changes made to the tree after its construction. It is immutable and may be
+ * used by multiple threads.
+ *
+ * @param <T>
+ *         the type of the {@link Artifact Artifacts}
+ */
+public final class TreeSnapshot<T extends Artifact<T>> {
+
+    /**
+     * Assigns ids to the {@link Artifact#getMatchingKey() matching keys} of the nodes of
+     * {@link TreeSnapshot TreeSnapshots}. Keys that are interned in a dictionary of their own (see
+     * {@link Artifact#getMatchingKeyId()}) are mapped by their id, all other keys by their value. A {@link Labels}
+     * dictionary may only be used by one thread at a time.
+     *
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    public static final class Labels<T extends Artifact<T>> {
+
+        private final Map<String, Integer> labels;
+
+        /**
+         * The dictionary of the interned keys mapped by {@link #interned}, it is the one of the first interned key
+         * that is labeled.
+         */
+        private Object dictionary;
+
+        /**
+         * For every id of an interned key of {@link #dictionary} the label id or -1 if none was assigned yet.
+         */
+        private int[] interned;
+
+        /**
+         * Constructs a new empty {@link Labels} dictionary.
+         */
+        public Labels() {
+            this.labels = new HashMap<>();
+            this.interned = new int[0];
+        }
+
+        /**
+         * Returns the id of the label of the given <code>node</code>, a new id is assigned if necessary.
+         *
+         * @param node
+         *         the node whose label is to be returned
+         * @return the label id
+         */
+        private int label(T node) {
+            int id = node.getMatchingKeyId();
+
+            if (id < 0) {
+                return label(node.getMatchingKey());
+            }
+
+            if (dictionary == null) {
+                dictionary = node.getMatchingKeyDictionary();
+            } else if (dictionary != node.getMatchingKeyDictionary()) {
+                return label(node.getMatchingKey());
+            }
+
+            if (id >= interned.length) {
+                int length = interned.length;
+
+                interned = Arrays.copyOf(interned, Math.max(id + 1, 2 * length));
+                Arrays.fill(interned, length, interned.length, -1);
+            }
+
+            if (interned[id] == -1) {
+                interned[id] = label(node.getMatchingKey());
+            }
+
+            return interned[id];
+        }
+
+        /**
+         * Returns the id of the given {@link Artifact#getMatchingKey() matching key}, a new id is assigned if
+         * necessary.
+         *
+         * @param key
+         *         the matching key
+         * @return the label id
+         */
+        private int label(String key) {
+            Integer label = labels.get(key);
+
+            if (label == null) {
+                label = labels.size();
+                labels.put(key, label);
+            }
+
+            return label;
+        }
+
+        /**
+         * Returns the id of the given {@link Artifact#getMatchingKey() matching key} or -1 if no node with that key
+         * was labeled by this dictionary.
+         *
+         * @param key
+         *         the matching key
+         * @return the label id or -1
+         */
+        public int labelOf(String key) {
+            return labels.getOrDefault(key, -1);
+        }
+
+        /**
+         * Returns the number of labels assigned by this dictionary.
+         *
+         * @return the number of labels
+         */
+        public int numLabels() {
+            return labels.size();
+        }
+    }
+
+    private final Labels<T> labels;
+    private final Map<T, Integer> indices;
+
+    private final Object[] nodes;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] size;
+    private final int[] depth;
+    private final int[] label;
+    private final TreeHash[] hash;
+
+    /**
+     * Constructs a new {@link TreeSnapshot} of the tree rooted in <code>root</code> using a new {@link Labels}
+     * dictionary.
+     *
+     * @param root
+     *         the root of the tree
+     */
+    public TreeSnapshot(T root) {
+        this(root, new Labels<>());
+    }
+
+    /**
+     * Constructs a new {@link TreeSnapshot} of the tree rooted in <code>root</code>.
+     *
+     * @param root
+     *         the root of the tree
+     * @param labels
+     *         the dictionary to assign label ids with
+     */
+    public TreeSnapshot(T root, Labels<T> labels) {
+        List<T> preOrder = new ArrayList<>();
+        Deque<T> stack = new ArrayDeque<>();
+
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+            List<T> children = node.getChildren();
+
+            preOrder.add(node);
+
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+
+        int n = preOrder.size();
+
+        this.labels = labels;
+        this.indices = new IdentityHashMap<>(n * 2);
+        this.nodes = preOrder.toArray();
+        this.parent = new int[n];
+        this.firstChild = new int[n];
+        this.nextSibling = new int[n];
+        this.size = new int[n];
+        this.depth = new int[n];
+        this.label = new int[n];
+        this.hash = new TreeHash[n];
+
+        for (int i = 0; i < n; i++) {
+            indices.put(preOrder.get(i), i);
+        }
+
+        Arrays.fill(parent, -1);
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        for (int i = 0; i < n; i++) {
+            T node = preOrder.get(i);
+            int previous = -1;
+
+            for (T child : node.getChildren()) {
+                int c = indices.get(child);
+
+                parent[c] = i;
+                depth[c] = depth[i] + 1;
+
+                if (previous == -1) {
+                    firstChild[i] = c;
+                } else {
+                    nextSibling[previous] = c;
+                }
+
+                previous = c;
+            }
+
+            label[i] = labels.label(node);
+            hash[i] = node.getStructuralHash();
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            size[i] += 1;
+
+            if (parent[i] != -1) {
+                size[parent[i]] += size[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link Labels} dictionary the ids of this {@link TreeSnapshot} were assigned by.
+     *
+     * @return the dictionary
+     */
+    public Labels<T> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns the number of nodes in this {@link TreeSnapshot}.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the pre-order index of the given <code>node</code> or -1 if it is not part of this snapshot.
+     *
+     * @param node
+     *         the node whose index is to be returned
+     * @return the index of the node or -1
+     */
+    public int indexOf(T node) {
+        return indices.getOrDefault(node, -1);
+    }
+
+    /**
+     * Returns the node with the given pre-order index.
+     *
+     * @param i
+     *         the index of the node
+     * @return the node
+     */
+    @SuppressWarnings("unchecked")
+    public T node(int i) {
+        return (T) nodes[i];
+    }
+
+    /**
+     * Returns the index of the parent of node <code>i</code> or -1 for the root.
+     *
+     * @param i
+     *         the index of the node
+     * @return the index of the parent or -1
+     */
+    public int parent(int i) {
+        return parent[i];
+    }
+
+    /**
+     * Returns the index of the first child of node <code>i</code> or -1 if it is a leaf.
+     *
+     * @param i
+     *         the index of the node
+     * @return the index of the first child or -1
+     */
+    public int firstChild(int i) {
+        return firstChild[i];
+    }
+
+    /**
+     * Returns the index of the next sibling of node <code>i</code> or -1 if it is the last child of its parent.
+     *
+     * @param i
+     *         the index of the node
+     * @return the index of the next sibling or -1
+     */
+    public int nextSibling(int i) {
+        return nextSibling[i];
+    }
+
+    /**
+     * Returns the size of the subtree rooted in node <code>i</code> (including the node itself).
+     *
+     * @param i
+     *         the index of the node
+     * @return the size of the subtree
+     */
+    public int subtreeSize(int i) {
+        return size[i];
+    }
+
+    /**
+     * Returns the index after the last node of the subtree rooted in node <code>i</code>.
+     *
+     * @param i
+     *         the index of the node
+     * @return the end of the subtree
+     */
+    public int end(int i) {
+        return i + size[i];
+    }
+
+    /**
+     * Returns the depth of node <code>i</code>, the root has depth 0.
+     *
+     * @param i
+     *         the index of the node
+     * @return the depth of the node
+     */
+    public int depth(int i) {
+        return depth[i];
+    }
+
+    /**
+     * Returns the label id of node <code>i</code>.
+     *
+     * @param i
+     *         the index of the node
+     * @return the label id
+     */
+    public int label(int i) {
+        return label[i];
+    }
+
+    /**
+     * Returns the {@link Artifact#getStructuralHash() structural hash} of node <code>i</code>.
+     *
+     * @param i
+     *         the index of the node
+     * @return the structural hash
+     */
+    public TreeHash hash(int i) {
+        return hash[i];
+    }
+}
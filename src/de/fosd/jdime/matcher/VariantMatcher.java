@@ -0,0 +1,224 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.cost_model.CMMode;
+import de.fosd.jdime.matcher.matching.Matchings;
+
+/**
+ * Matches the variants of a choice node against an {@link Artifact} and determines the best of the resulting
+ * {@link Matchings}.
+ * <p>
+ * The variants are independent of each other. If {@link MergeContext#isParallelMatching()} is set, they are matched
+ * by tasks running in the {@link ForkJoinPool#commonPool() common pool}. The results are reduced pairwise while the
+ * tasks complete so that only the best {@link Matchings} of every subrange stay reachable. Of the variants with the
+ * highest score, the one whose condition comes first in lexicographical order wins, the result is therefore
+ * independent of the order in which the tasks finish and of the iteration order of the variants map.
+ */
+final class VariantMatcher {
+
+    /**
+     * Matches the variants {@code [from, to)} against the right {@link Artifact} and returns the best result.
+     *
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    private static final class VariantTask<T extends Artifact<T>> extends RecursiveTask<Result<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MergeContext context;
+        private final MatcherInterface<T> matcher;
+        private final T[] variants;
+        private final T right;
+
+        private final int from;
+        private final int to;
+
+        private VariantTask(MergeContext context, MatcherInterface<T> matcher, T[] variants, T right, int from,
+                            int to) {
+            this.context = context;
+            this.matcher = matcher;
+            this.variants = variants;
+            this.right = right;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result<T> compute() {
+
+            if (to - from == 1) {
+                return match(context, matcher, variants[from], right);
+            }
+
+            int mid = (from + to) >>> 1;
+
+            VariantTask<T> upper = new VariantTask<>(context, matcher, variants, right, mid, to);
+            upper.fork();
+
+            Result<T> lower = new VariantTask<>(context, matcher, variants, right, from, mid).compute();
+
+            return better(lower, upper.join());
+        }
+    }
+
+    /**
+     * The {@link Matchings} computed for one variant together with the score of the matching of the variant itself.
+     *
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     */
+    private static final class Result<T extends Artifact<T>> {
+
+        private final Matchings<T> matchings;
+        private final int score;
+
+        private Result(Matchings<T> matchings, int score) {
+            this.matchings = matchings;
+            this.score = score;
+        }
+    }
+
+    private VariantMatcher() {
+        // UTILITY CLASS
+    }
+
+    /**
+     * Matches every variant of the choice node {@code left} against {@code right} and returns the {@link Matchings}
+     * of the variant with the highest score. Ties are broken in favor of the variant whose condition is the
+     * lexicographically smallest.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param matcher
+     *         the matcher to use for the variants
+     * @param left
+     *         the choice node
+     * @param right
+     *         the {@link Artifact} to match the variants against
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the best {@link Matchings} of a variant of {@code left} and {@code right}
+     */
+    static <T extends Artifact<T>> Matchings<T> matchVariants(MergeContext context, MatcherInterface<T> matcher,
+                                                              T left, T right) {
+        T[] variants = sortedVariants(left.getVariants());
+
+        if (!parallel(context, variants.length)) {
+            Result<T> best = match(context, matcher, variants[0], right);
+
+            for (int i = 1; i < variants.length; i++) {
+                best = better(best, match(context, matcher, variants[i], right));
+            }
+
+            return best.matchings;
+        }
+
+        VariantTask<T> task = new VariantTask<>(context, matcher, variants, right, 0, variants.length);
+
+        if (ForkJoinTask.inForkJoinPool()) {
+            return task.invoke().matchings;
+        } else {
+            return ForkJoinPool.commonPool().invoke(task).matchings;
+        }
+    }
+
+    /**
+     * Returns the variants ordered by their conditions.
+     *
+     * @param variants
+     *         the variants of a choice node
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the variants ordered by their conditions
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Artifact<T>> T[] sortedVariants(Map<String, T> variants) {
+        return (T[]) new TreeMap<>(variants).values().toArray(new Artifact<?>[variants.size()]);
+    }
+
+    /**
+     * Returns whether the given number of variants is to be matched in parallel.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param variants
+     *         the number of variants
+     * @return true iff the variants are to be matched in parallel
+     */
+    private static boolean parallel(MergeContext context, int variants) {
+        return context.isParallelMatching()
+                && variants > 1
+                && context.getCMMatcherMode() != CMMode.INTEGRATED; // the CostModelMatcher is not thread safe
+    }
+
+    /**
+     * Matches a single variant against {@code right}.
+     *
+     * @param context
+     *         the {@link MergeContext} of the merge
+     * @param matcher
+     *         the matcher to use
+     * @param variant
+     *         the variant
+     * @param right
+     *         the {@link Artifact} to match the variant against
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the resulting {@link Result}
+     */
+    private static <T extends Artifact<T>> Result<T> match(MergeContext context, MatcherInterface<T> matcher,
+                                                           T variant, T right) {
+        Matchings<T> matchings = matcher.match(context, variant, right);
+        return new Result<>(matchings, matchings.get(variant, right).get().getScore());
+    }
+
+    /**
+     * Returns the better of two {@link Result Results}. {@code first} must stem from a variant preceding the one
+     * {@code second} stems from, it is preferred if the scores are equal.
+     *
+     * @param first
+     *         the first {@link Result}
+     * @param second
+     *         the second {@link Result}
+     * @param <T>
+     *         the type of the {@link Artifact Artifacts}
+     * @return the better {@link Result}
+     */
+    private static <T extends Artifact<T>> Result<T> better(Result<T> first, Result<T> second) {
+        return second.score > first.score ? second : first;
+    }
+}
@@ -27,6 +27,7 @@
 package de.fosd.jdime.matcher.cost_model;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -36,6 +37,7 @@ import de.fosd.jdime.util.Tuple;
 import org.apache.commons.math3.distribution.IntegerDistribution;
 import org.apache.commons.math3.distribution.PascalDistribution;
 import org.apache.commons.math3.random.RandomAdaptor;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.Well19937c;
 
 import static de.fosd.jdime.stats.KeyEnums.Type.CLASS;
@@ -111,6 +113,12 @@ public final class CMParameters<T extends Artifact<T>> {
 
     boolean fixRandomPercentage;
 
+    /**
+     * The number of matching candidates per node in the pruned bipartite graph. If this is not positive, the complete
+     * bipartite graph is used.
+     */
+    int candidates;
+
     /*
      * Caches valid for the entirety of the CostModelMatcher#match(MergeContext, Artifact, Artifact) function.
      */
@@ -119,6 +127,11 @@ public final class CMParameters<T extends Artifact<T>> {
     ConcurrentMap<T, List<T>> siblingCache;
     ConcurrentMap<T, List<T>> otherSiblingsCache;
 
+    /**
+     * The edges of the pruned bipartite graph if {@link #candidates} is positive.
+     */
+    List<Tuple<T, T>> candidateEdges;
+
     /*
      * Caches valid during one run of the CostModelMatcher#cost(CMMatchings, CMParameters) function.
      */
@@ -128,6 +141,16 @@ public final class CMParameters<T extends Artifact<T>> {
      */
     ConcurrentMap<T, CMMatching<T>> exactContainsCache;
 
+    /*
+     * Caches valid from one run of the CostModelMatcher#cost(CMMatchings, CMParameters) function to the next.
+     */
+
+    /**
+     * The <code>exactContainsCache</code> of the last exact cost calculation. The exact costs of its
+     * <code>CMMatching</code>s are reused for those matchings whose children and siblings did not change their images.
+     */
+    Map<T, CMMatching<T>> lastExactContainsCache;
+
     /*
      * Caches valid during one run of the CostModelMatcher#boundCost(CMMatchings, CMParameters) function.
      */
@@ -144,19 +167,33 @@ public final class CMParameters<T extends Artifact<T>> {
      *         the <code>MergeContext</code> to use
      */
     public CMParameters(MergeContext context) {
+        this(context, context.getSeed().map(Well19937c::new).orElse(new Well19937c()));
+    }
+
+    /**
+     * Constructs a new <code>CMParameters</code> configured from the given <code>MergeContext</code> using the given
+     * PRNG instead of one seeded with {@link MergeContext#getSeed()}.
+     *
+     * @param context
+     *         the <code>MergeContext</code> to use
+     * @param rng
+     *         the PRNG to use
+     */
+    public CMParameters(MergeContext context, RandomGenerator rng) {
         setNoMatchWeight(context.getWn());
         setRenamingWeight(context.getWr());
         setAncestryViolationWeight(context.getWa());
         setSiblingGroupBreakupWeight(context.getWs());
         setOrderingWeight(context.getWo());
-        rng = new RandomAdaptor(context.getSeed().map(Well19937c::new).orElse(new Well19937c()));
-        assignDist = new PascalDistribution(rng, 1, context.getpAssign());
+        this.rng = new RandomAdaptor(rng);
+        assignDist = new PascalDistribution(this.rng, 1, context.getpAssign());
         setPAssign(context.getpAssign());
         setFixLower(context.getFixLower());
         setFixUpper(context.getFixUpper());
         setBeta(30);
         setParallel(context.isCmMatcherParallel());
         setFixRandomPercentage(context.isCmMatcherFixRandomPercentage());
+        setCandidates(context.getCmCandidates());
         lcaCache = new ConcurrentHashMap<>();
         siblingCache = new ConcurrentHashMap<>();
         otherSiblingsCache = new ConcurrentHashMap<>();
@@ -349,10 +386,23 @@ public final class CMParameters<T extends Artifact<T>> {
     }
 
     /**
-     * Clears the caches that are only valid for one exact cost calculation.
+     * Sets the number of matching candidates per node. If this is positive, only the edges to the best
+     * <code>candidates</code> nodes of the opposite tree (and the no-match node) are part of the bipartite graph.
+     *
+     * @param candidates
+     *         the number of candidates per node, zero or less to use the complete bipartite graph
+     */
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Clears the caches that are only valid for one exact cost calculation. The cleared matchings are retained for
+     * incrementally calculating the next exact cost.
      */
     public void clearExactCaches() {
-        exactContainsCache.clear();
+        lastExactContainsCache = exactContainsCache;
+        exactContainsCache = new ConcurrentHashMap<>();
     }
 
     /**
@@ -0,0 +1,218 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.cost_model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.TreeHash;
+
+/**
+ * An index over the nodes of one tree from which the matching candidates for nodes of the opposite tree are taken
+ * when the <code>CostModelMatcher</code> uses a pruned bipartite graph. Only nodes whose category matches
+ * (see {@link Artifact#categoryMatches(Artifact)}) are candidates. They are ranked by whether they are the root of an
+ * identical subtree, whether their matching key (see {@link Artifact#getMatchingKey()}) is equal and finally by how
+ * close their relative position in breadth-first order is to that of the node they are candidates for.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ */
+final class CandidateIndex<T extends Artifact<T>> {
+
+    /**
+     * The nodes of one category in breadth-first order and their relative positions in the tree.
+     */
+    private static final class Category<T> {
+
+        private final T representative;
+        private final List<T> nodes;
+        private float[] positions;
+
+        private Category(T representative) {
+            this.representative = representative;
+            this.nodes = new ArrayList<>();
+        }
+    }
+
+    private final List<Category<T>> categories;
+    private final Map<TreeHash, List<T>> byHash;
+    private final Map<String, List<T>> byKey;
+
+    /**
+     * Constructs a new <code>CandidateIndex</code> over the given <code>nodes</code>.
+     *
+     * @param nodes
+     *         the nodes of a tree in breadth-first order
+     */
+    CandidateIndex(List<T> nodes) {
+        this.categories = new ArrayList<>();
+        this.byHash = new HashMap<>();
+        this.byKey = new HashMap<>();
+
+        for (T node : nodes) {
+            byHash.computeIfAbsent(node.getStructuralHash(), h -> new ArrayList<>()).add(node);
+            byKey.computeIfAbsent(node.getMatchingKey(), k -> new ArrayList<>()).add(node);
+
+            Category<T> category = category(node);
+
+            if (category == null) {
+                category = new Category<>(node);
+                categories.add(category);
+            }
+
+            category.nodes.add(node);
+        }
+
+        Map<T, Integer> index = new HashMap<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            index.put(nodes.get(i), i);
+        }
+
+        for (Category<T> category : categories) {
+            category.positions = new float[category.nodes.size()];
+
+            for (int i = 0; i < category.positions.length; i++) {
+                category.positions[i] = position(index.get(category.nodes.get(i)), nodes.size());
+            }
+        }
+    }
+
+    /**
+     * Returns the relative position of the node at index <code>i</code> of a breadth-first order of
+     * <code>size</code> nodes.
+     *
+     * @param i
+     *         the index of the node
+     * @param size
+     *         the number of nodes
+     * @return the relative position from [0, 1]
+     */
+    static float position(int i, int size) {
+        return size > 1 ? (float) i / (size - 1) : 0;
+    }
+
+    /**
+     * Returns the category of the indexed nodes <code>node</code> belongs to.
+     *
+     * @param node
+     *         the node whose category is to be returned
+     * @return the <code>Category</code> or <code>null</code> if no indexed node has the category of <code>node</code>
+     */
+    private Category<T> category(T node) {
+
+        for (Category<T> category : categories) {
+
+            if (node.categoryMatches(category.representative)) {
+                return category;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns at most <code>k</code> of the indexed nodes that are matching candidates for <code>node</code> in the
+     * order of their rank.
+     *
+     * @param node
+     *         the node from the opposite tree
+     * @param position
+     *         the relative position of <code>node</code> in the breadth-first order of its tree
+     * @param k
+     *         the maximum number of candidates to return
+     * @return the matching candidates for <code>node</code>
+     */
+    List<T> candidates(T node, float position, int k) {
+        Category<T> category = category(node);
+
+        if (category == null || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        Set<T> candidates = new LinkedHashSet<>();
+
+        addCategoryMatches(node, byHash.getOrDefault(node.getStructuralHash(), Collections.emptyList()), candidates, k);
+        addCategoryMatches(node, byKey.getOrDefault(node.getMatchingKey(), Collections.emptyList()), candidates, k);
+
+        if (candidates.size() < k) {
+            float[] positions = category.positions;
+            int right = Arrays.binarySearch(positions, position);
+
+            if (right < 0) {
+                right = -right - 1;
+            }
+
+            int left = right - 1;
+
+            while (candidates.size() < k && (left >= 0 || right < positions.length)) {
+
+                if (right >= positions.length || (left >= 0 && position - positions[left] <= positions[right] - position)) {
+                    candidates.add(category.nodes.get(left--));
+                } else {
+                    candidates.add(category.nodes.get(right++));
+                }
+            }
+        }
+
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * Adds those of the <code>nodes</code> that match the category of <code>node</code> to <code>candidates</code>
+     * until it contains <code>k</code> nodes.
+     *
+     * @param node
+     *         the node to find candidates for
+     * @param nodes
+     *         the nodes to add
+     * @param candidates
+     *         the candidates found so far
+     * @param k
+     *         the maximum number of candidates
+     */
+    private void addCategoryMatches(T node, List<T> nodes, Set<T> candidates, int k) {
+
+        for (T n : nodes) {
+
+            if (candidates.size() >= k) {
+                return;
+            }
+
+            if (node.categoryMatches(n)) {
+                candidates.add(n);
+            }
+        }
+    }
+}
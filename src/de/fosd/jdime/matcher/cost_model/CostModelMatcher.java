@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -52,10 +53,13 @@ import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.stats.Runtime;
 import de.fosd.jdime.util.Tuple;
 import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
 
 import static de.fosd.jdime.matcher.cost_model.Bounds.BY_LOWER_UPPER;
+import static de.fosd.jdime.stats.Runtime.COST_MODEL_LABEL;
 import static java.lang.Integer.toHexString;
 import static java.lang.System.identityHashCode;
 import static java.util.Comparator.comparing;
@@ -128,6 +132,23 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
         }
     }
 
+    /**
+     * The return type of {@link #runChain(MergeContext, CMMatchings, CMParameters, long, long)} containing the lowest
+     * cost <code>CMMatchings</code> found by a chain, their cost and the number of iterations the chain ran for.
+     */
+    private final class ChainResult {
+
+        public final CMMatchings<T> matchings;
+        public final float cost;
+        public final int iterations;
+
+        public ChainResult(CMMatchings<T> matchings, float cost, int iterations) {
+            this.matchings = matchings;
+            this.cost = cost;
+            this.iterations = iterations;
+        }
+    }
+
     /**
      * Returns the exact cost of the given set of <code>matchings</code>.
      *
@@ -195,10 +216,23 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
             return 0;
         }
 
+        for (CMMatching<T> matching : matchings) {
+
+            if (matching.m != null) {
+                parameters.exactContainsCache.putIfAbsent(matching.m, matching);
+            }
+
+            if (matching.n != null) {
+                parameters.exactContainsCache.putIfAbsent(matching.n, matching);
+            }
+        }
+
+        List<CMMatching<T>> changed = changedMatchings(matchings, parameters);
+
         if (parameters.parallel) {
-            matchings.parallelStream().forEach(m -> cost(m, matchings, parameters));
+            changed.parallelStream().forEach(m -> cost(m, matchings, parameters));
         } else {
-            matchings.forEach(m -> cost(m, matchings, parameters));
+            changed.forEach(m -> cost(m, matchings, parameters));
         }
 
         double sumCost = matchings.stream().mapToDouble(CMMatching::getExactCost).sum();
@@ -209,6 +243,63 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
         return (float) sumCost;
     }
 
+    /**
+     * Returns the <code>CMMatching</code>s from <code>matchings</code> whose exact cost may differ from the one they
+     * had in the last exact cost calculation using the given <code>parameters</code>. The exact cost of a matching
+     * only depends on the images of the children and siblings of its artifacts. All other matchings are assigned the
+     * exact cost from the last calculation.
+     *
+     * @param matchings
+     *         the complete <code>CMMatching</code>s
+     * @param parameters
+     *         the <code>CMParameters</code> to use
+     * @return the <code>CMMatching</code>s whose exact cost has to be calculated
+     */
+    private List<CMMatching<T>> changedMatchings(CMMatchings<T> matchings, CMParameters<T> parameters) {
+        Map<T, CMMatching<T>> last = parameters.lastExactContainsCache;
+
+        if (last == null) {
+            return matchings;
+        }
+
+        Set<T> dirty = new HashSet<>();
+        Consumer<T> markDirty = artifact -> {
+            dirty.add(artifact);
+
+            if (artifact.getParent() != null) {
+                dirty.add(artifact.getParent());
+            }
+
+            dirty.addAll(siblings(artifact, matchings, parameters));
+        };
+
+        for (CMMatching<T> matching : matchings) {
+
+            if (matching.m != null && !matching.equals(last.get(matching.m))) {
+                markDirty.accept(matching.m);
+            }
+
+            if (matching.n != null && !matching.equals(last.get(matching.n))) {
+                markDirty.accept(matching.n);
+            }
+        }
+
+        List<CMMatching<T>> changed = new ArrayList<>();
+
+        for (CMMatching<T> matching : matchings) {
+            T artifact = matching.m != null ? matching.m : matching.n;
+            CMMatching<T> lastMatching = last.get(artifact);
+
+            if (!matching.equals(lastMatching) || dirty.contains(matching.m) || dirty.contains(matching.n)) {
+                changed.add(matching);
+            } else {
+                matching.setExactCost(lastMatching.getExactCost());
+            }
+        }
+
+        return changed;
+    }
+
     /**
      * Sets the exact cost ({@link CMMatching#setExactCost(float)}) of the given <code>matching</code> based on
      * the given set of <code>matchings</code>.
@@ -975,17 +1066,174 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
      * @return the resulting matchings
      */
     private Matchings<T> match(MergeContext context, T left, T right, CMMatchings<T> preFixed) {
-        CMParameters<T> parameters = new CMParameters<>(context);
-
         LOG.finer("Matching " + left + " and " + right + " using the " + getClass().getSimpleName());
 
+        int chains = context.getCmChains();
+        Runtime runtime = new Runtime(COST_MODEL_LABEL);
+        long budgetNS = budget(context);
+        ChainResult lowest;
+
+        try (Runtime.Measurement m = runtime.time()) {
+            long startNS = System.nanoTime();
+
+            if (chains <= 1) {
+                lowest = runChain(context, preFixed, new CMParameters<>(context), startNS, budgetNS);
+                runtime.addIterations(lowest.iterations);
+            } else {
+                lowest = runChains(context, preFixed, chains, startNS, budgetNS, runtime);
+            }
+        }
+
+        Runtime fileRuntime = context.getCostModelRuntime();
+
+        if (fileRuntime != null) {
+            fileRuntime.add(runtime);
+        }
+
+        return convert(lowest.matchings);
+    }
+
+    /**
+     * Returns the time in nanoseconds the next invocation of the <code>CostModelMatcher</code> may take according to
+     * the per-invocation and per-file budgets in the given <code>context</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the budgets
+     * @return the budget in nanoseconds or {@link Long#MAX_VALUE} if the time is not limited
+     */
+    private long budget(MergeContext context) {
+        long budgetMS = Long.MAX_VALUE;
+
+        if (context.getCmInvocationBudget() > 0) {
+            budgetMS = context.getCmInvocationBudget();
+        }
+
+        Runtime fileRuntime = context.getCostModelRuntime();
+
+        if (context.getCmFileBudget() > 0 && fileRuntime != null) {
+            long usedMS = fileRuntime.isMeasured() ? fileRuntime.getTimeMS() : 0;
+            budgetMS = Math.min(budgetMS, Math.max(0, context.getCmFileBudget() - usedMS));
+        }
+
+        return budgetMS == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(budgetMS);
+    }
+
+    /**
+     * Runs <code>chains</code> independent Markov chains in parallel and returns the result of the one that found the
+     * lowest cost matchings.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the parameters to use for the Flexible Tree Matching
+     *         algorithm
+     * @param preFixed
+     *         the matchings between the left and right tree that are fixed
+     * @param chains
+     *         the number of chains to run
+     * @param startNS
+     *         the {@link System#nanoTime()} at which the matching started
+     * @param budgetNS
+     *         the time in nanoseconds the chains may run for
+     * @param runtime
+     *         the <code>Runtime</code> to add the iterations of all chains to
+     * @return the result of the chain that found the lowest cost matchings
+     */
+    private ChainResult runChains(MergeContext context, CMMatchings<T> preFixed, int chains, long startNS,
+                                  long budgetNS, Runtime runtime) {
+
+        /*
+         * The PRNGs of the chains are seeded sequentially from the configured seed before any of the chains is
+         * started. Ties between the lowest costs found by the chains are broken in favor of the lower chain index.
+         * This makes the result independent of the scheduling of the chains.
+         */
+        RandomGenerator seeds = context.getSeed().map(Well19937c::new).orElse(new Well19937c());
+        List<CMParameters<T>> parameters = new ArrayList<>(chains);
+
+        for (int i = 0; i < chains; i++) {
+            parameters.add(new CMParameters<>(context, new Well19937c(seeds.nextLong())));
+        }
+
+        List<ChainResult> results = parameters.parallelStream()
+                .map(p -> runChain(context, copy(preFixed), p, startNS, budgetNS))
+                .collect(toList());
+
+        ChainResult lowest = results.get(0);
+
+        for (ChainResult result : results) {
+            runtime.addIterations(result.iterations);
+
+            if (result.cost < lowest.cost) {
+                lowest = result;
+            }
+        }
+
+        float lowestCost = lowest.cost;
+        LOG.finer(() -> "Lowest cost of " + chains + " chains is " + lowestCost + ".");
+
+        return lowest;
+    }
+
+    /**
+     * Returns a copy of the given <code>CMMatchings</code> containing new <code>CMMatching</code> instances. Chains
+     * running concurrently must not share <code>CMMatching</code>s as their costs are stored in them.
+     *
+     * @param matchings
+     *         the <code>CMMatchings</code> to copy
+     * @return the copy
+     */
+    private CMMatchings<T> copy(CMMatchings<T> matchings) {
+        CMMatchings<T> copy = new CMMatchings<>(matchings.size(), matchings.left, matchings.right);
+
+        for (CMMatching<T> matching : matchings) {
+            copy.add(new CMMatching<>(matching.m, matching.n));
+        }
+
+        return copy;
+    }
+
+    /**
+     * Runs one Markov chain of the Metropolis algorithm for at most {@link MergeContext#getCostModelIterations()}
+     * iterations and returns the lowest cost matchings it encountered. The chain stops early if the time budget is
+     * exhausted or if the lowest cost did not improve by more than {@link MergeContext#getCmMinImprovement()}
+     * (relative to the lowest cost) for {@link MergeContext#getCmStagnationWindow()} iterations.
+     *
+     * @param context
+     *         the <code>MergeContext</code> containing the parameters to use for the Flexible Tree Matching
+     *         algorithm
+     * @param preFixed
+     *         the matchings between the left and right tree that are fixed
+     * @param parameters
+     *         the <code>CMParameters</code> (including the PRNG) of this chain
+     * @param startNS
+     *         the {@link System#nanoTime()} at which the matching started
+     * @param budgetNS
+     *         the time in nanoseconds the chain may run for
+     * @return the lowest cost matchings, their cost and the number of iterations that ran
+     */
+    private ChainResult runChain(MergeContext context, CMMatchings<T> preFixed, CMParameters<T> parameters,
+                                 long startNS, long budgetNS) {
         CMMatchings<T> m = initialize(preFixed, parameters);
         ObjectiveValue mObjVal = objective(m, parameters);
 
         CMMatchings<T> lowest = m;
         float lowestCost = mObjVal.matchingsCost;
 
-        for (int i = 0; i < context.getCostModelIterations(); i++) {
+        int stagnationWindow = context.getCmStagnationWindow();
+        float minImprovement = context.getCmMinImprovement();
+        int stagnating = 0;
+        int i;
+
+        for (i = 0; i < context.getCostModelIterations(); i++) {
+
+            if (System.nanoTime() - startNS >= budgetNS) {
+                LOG.finer("Time budget exhausted before iteration " + i);
+                break;
+            }
+
+            if (stagnationWindow > 0 && stagnating >= stagnationWindow) {
+                LOG.finer("Lowest cost did not improve for " + stagnating + " iterations before iteration " + i);
+                break;
+            }
+
             CMMatchings<T> mHat = propose(m, preFixed, parameters);
             AcceptanceProbability mHatAccProb = acceptanceProb(mObjVal.objValue, mHat, parameters);
 
@@ -997,6 +1245,12 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
                 mObjVal = mHatAccProb.mHatObjectiveValue;
             }
 
+            if (mHatAccProb.mHatObjectiveValue.matchingsCost < lowestCost * (1 - minImprovement)) {
+                stagnating = 0;
+            } else {
+                stagnating++;
+            }
+
             if (mHatAccProb.mHatObjectiveValue.matchingsCost < lowestCost) {
 
                 lowest = mHat;
@@ -1009,9 +1263,10 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
             LOG.finer("End of iteration " + i);
         }
 
-        LOG.finer(() -> "Matching ended after " + context.getCostModelIterations() + " iterations.");
+        int iterations = i;
+        LOG.finer(() -> "Matching ended after " + iterations + " iterations.");
 
-        return convert(lowest);
+        return new ChainResult(lowest, lowestCost, iterations);
     }
 
     /**
@@ -1138,7 +1393,14 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
      * @return the completed set of matchings
      */
     private CMMatchings<T> complete(CMMatchings<T> fixedMatchings, CMParameters<T> parameters) {
-        CMMatchings<T> current = completeBipartiteGraph(fixedMatchings.left, fixedMatchings.right, parameters);
+        CMMatchings<T> current;
+
+        if (parameters.candidates > 0) {
+            current = candidateBipartiteGraph(fixedMatchings, parameters);
+        } else {
+            current = completeBipartiteGraph(fixedMatchings.left, fixedMatchings.right, parameters);
+        }
+
         CMMatchings<T> fixed = new CMMatchings<>(fixedMatchings, fixedMatchings.left, fixedMatchings.right);
 
         fixed.forEach(m -> prune(m, current));
@@ -1222,6 +1484,80 @@ public class CostModelMatcher<T extends Artifact<T>> implements MatcherInterface
         return bipartiteGraph;
     }
 
+    /**
+     * Returns the (randomly ordered) bipartite graph between the trees rooted in <code>fixedMatchings.left</code> and
+     * <code>fixedMatchings.right</code> that contains only the edges to the no-match node, the edges to the
+     * {@link CMParameters#candidates} best candidates (see {@link CandidateIndex}) of every node and the edges in
+     * <code>fixedMatchings</code>. The candidate edges are determined once per <code>CMParameters</code>.
+     *
+     * @param fixedMatchings
+     *         the matchings that must be part of the graph
+     * @param parameters
+     *         the cost model parameters
+     * @return the pruned bipartite graph with its edges represented by <code>CMMatching</code>s
+     */
+    private CMMatchings<T> candidateBipartiteGraph(CMMatchings<T> fixedMatchings, CMParameters<T> parameters) {
+        T left = fixedMatchings.left;
+        T right = fixedMatchings.right;
+
+        if (parameters.candidateEdges == null) {
+            parameters.candidateEdges = candidateEdges(left, right, parameters.candidates);
+        }
+
+        Set<CMMatching<T>> edges = new LinkedHashSet<>(fixedMatchings);
+
+        for (Tuple<T, T> edge : parameters.candidateEdges) {
+            edges.add(new CMMatching<>(edge.x, edge.y));
+        }
+
+        CMMatchings<T> bipartiteGraph = new CMMatchings<>(edges, left, right);
+
+        Collections.shuffle(bipartiteGraph, parameters.rng);
+        return bipartiteGraph;
+    }
+
+    /**
+     * Returns the edges of the pruned bipartite graph between the trees rooted in <code>left</code> and
+     * <code>right</code>. Every node has an edge to the no-match node (represented by <code>null</code>) and to its
+     * <code>k</code> best candidates from the opposite tree.
+     *
+     * @param left
+     *         the left root
+     * @param right
+     *         the right root
+     * @param k
+     *         the number of candidates per node
+     * @return the edges of the pruned bipartite graph
+     */
+    private List<Tuple<T, T>> candidateEdges(T left, T right, int k) {
+        List<T> leftNodes = Artifacts.bfs(left);
+        List<T> rightNodes = Artifacts.bfs(right);
+        CandidateIndex<T> leftIndex = new CandidateIndex<>(leftNodes);
+        CandidateIndex<T> rightIndex = new CandidateIndex<>(rightNodes);
+
+        Set<Tuple<T, T>> edges = new LinkedHashSet<>();
+
+        for (int i = 0; i < leftNodes.size(); i++) {
+            T lNode = leftNodes.get(i);
+            float position = CandidateIndex.position(i, leftNodes.size());
+
+            edges.add(Tuple.of(lNode, null));
+            rightIndex.candidates(lNode, position, k).forEach(rNode -> edges.add(Tuple.of(lNode, rNode)));
+        }
+
+        for (int i = 0; i < rightNodes.size(); i++) {
+            T rNode = rightNodes.get(i);
+            float position = CandidateIndex.position(i, rightNodes.size());
+
+            edges.add(Tuple.of(null, rNode));
+            leftIndex.candidates(rNode, position, k).forEach(lNode -> edges.add(Tuple.of(lNode, rNode)));
+        }
+
+        LOG.finer(() -> "Pruned the bipartite graph to " + edges.size() + " edges using " + k + " candidates per node.");
+
+        return new ArrayList<>(edges);
+    }
+
     /**
      * Returns the value of the objective function.
      *
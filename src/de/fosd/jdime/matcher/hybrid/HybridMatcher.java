@@ -0,0 +1,835 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.hybrid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.MatcherInterface;
+import de.fosd.jdime.matcher.TreeSnapshot;
+import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.matcher.matching.Matchings;
+
+/**
+ * A {@link MatcherInterface matcher} for whole trees in the style of the GumTree algorithm. It runs in two phases
+ * instead of recursively solving a matching problem for the children of every pair of nodes:
+ * <ol>
+ *     <li>A greedy top-down phase that visits the nodes of both trees by decreasing height and anchors identical
+ *     subtrees (of at least {@link #MIN_HEIGHT}) with equal {@link Artifact#getStructuralHash() structural hashes}.
+ *     If a hash occurs more than once, pairs whose parents match and whose positions among their siblings are close
+ *     are preferred.</li>
+ *     <li>A bottom-up phase that matches every unmatched inner node of the left tree with the matching node of the
+ *     right tree that contains the most partners of its descendants if the dice coefficient of their descendants is
+ *     at least {@link #MIN_DICE}. For such a new pair of containers a greedy recovery step matches their unmatched
+ *     children (and recursively theirs). The recovery is bounded to one linear pass over the children of every
+ *     matched pair. It is repeated top-down for all matched pairs once the bottom-up phase is complete.</li>
+ * </ol>
+ * Only nodes that match according to {@link Artifact#matches(Artifact)} are matched. Finally, all matches that
+ * would move a node to a different parent are dropped since the merge only aligns the children of matched nodes. For
+ * matched nodes with ordered children only the longest subsequence of matched children that keeps their order is
+ * retained, the ordered merge would otherwise insert the children matched crosswise twice. The
+ * score of every resulting {@link Matching} is the number of matched node pairs in the two subtrees.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ * @see <a href="https://doi.org/10.1145/2642937.2642982">Fine-grained and Accurate Source Code Differencing</a>
+ */
+public class HybridMatcher<T extends Artifact<T>> implements MatcherInterface<T> {
+
+    private static final Logger LOG = Logger.getLogger(HybridMatcher.class.getCanonicalName());
+
+    private static final String ID = HybridMatcher.class.getSimpleName();
+
+    /**
+     * The minimum height of identical subtrees anchored in the top-down phase. Leaves are only matched as part of
+     * larger identical subtrees or during recovery.
+     */
+    static final int MIN_HEIGHT = 2;
+
+    /**
+     * The minimum dice coefficient of the descendants of two containers for them to be matched in the bottom-up phase.
+     */
+    static final double MIN_DICE = 0.5;
+
+    /**
+     * The maximum number of candidate pairs for one ambiguous structural hash that are ranked in the top-down phase.
+     * Larger groups of identical subtrees are paired in tree order.
+     */
+    static final int MAX_AMBIGUOUS_PAIRS = 4096;
+
+    private static final Deque<Integer> EMPTY = new ArrayDeque<>(0);
+
+    /**
+     * The {@link TreeSnapshot} of one tree together with the heights of its nodes, their positions among their
+     * siblings, their previous siblings and their partners in the other tree.
+     */
+    private static final class Tree<T extends Artifact<T>> {
+
+        private final TreeSnapshot<T> snapshot;
+        private final int[] height;
+        private final int[] index;
+        private final int[] previous;
+        private final int[] partner;
+
+        private Tree(TreeSnapshot<T> snapshot) {
+            int size = snapshot.size();
+
+            this.snapshot = snapshot;
+            this.height = new int[size];
+            this.index = new int[size];
+            this.previous = new int[size];
+            this.partner = new int[size];
+
+            Arrays.fill(previous, -1);
+            Arrays.fill(partner, -1);
+
+            for (int i = size - 1; i >= 0; i--) {
+                height[i] = 1;
+
+                for (int c = snapshot.firstChild(i), pos = 0; c != -1; c = snapshot.nextSibling(c), pos++) {
+                    height[i] = Math.max(height[i], height[c] + 1);
+                    index[c] = pos;
+
+                    if (snapshot.nextSibling(c) != -1) {
+                        previous[snapshot.nextSibling(c)] = c;
+                    }
+                }
+            }
+        }
+
+        private int numNodes() {
+            return snapshot.size();
+        }
+
+        private T node(int id) {
+            return snapshot.node(id);
+        }
+
+        private int parent(int id) {
+            return snapshot.parent(id);
+        }
+
+        private int next(int id) {
+            return snapshot.nextSibling(id);
+        }
+
+        private int end(int id) {
+            return snapshot.end(id);
+        }
+
+        private int size(int id) {
+            return snapshot.subtreeSize(id);
+        }
+
+        private boolean contains(int ancestor, int id) {
+            return ancestor <= id && id < end(ancestor);
+        }
+    }
+
+    @Override
+    public Matchings<T> match(MergeContext context, T left, T right) {
+
+        if (!left.matches(right)) {
+            Matchings<T> m = Matchings.of(left, right, 0);
+            m.get(left, right).get().setAlgorithm(ID);
+
+            return m;
+        }
+
+        TreeSnapshot.Labels<T> labels = new TreeSnapshot.Labels<>();
+        Tree<T> l = new Tree<>(new TreeSnapshot<>(left, labels));
+        Tree<T> r = new Tree<>(new TreeSnapshot<>(right, labels));
+
+        topDown(l, r);
+        bottomUp(l, r);
+
+        if (l.partner[0] == -1) {
+            map(l, r, 0, 0);
+        }
+
+        // in pre-order the pairs matched during recovery are visited after the containers they are children of
+        for (int lId = 0; lId < l.numNodes(); lId++) {
+
+            if (l.partner[lId] != -1) {
+                recover(l, r, lId, l.partner[lId]);
+            }
+        }
+
+        return matchings(l, r);
+    }
+
+    /**
+     * Anchors identical subtrees of at least {@link #MIN_HEIGHT} by decreasing height.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     */
+    private void topDown(Tree<T> l, Tree<T> r) {
+        List<List<Integer>> lHeights = byHeight(l);
+        List<List<Integer>> rHeights = byHeight(r);
+        int maxHeight = Math.min(lHeights.size(), rHeights.size()) - 1;
+
+        for (int h = maxHeight; h >= MIN_HEIGHT; h--) {
+            Map<TreeHash, List<Integer>> lGroups = byHash(l, lHeights.get(h));
+            Map<TreeHash, List<Integer>> rGroups = byHash(r, rHeights.get(h));
+
+            for (Map.Entry<TreeHash, List<Integer>> lGroup : lGroups.entrySet()) {
+                List<Integer> rGroup = rGroups.get(lGroup.getKey());
+
+                if (rGroup == null) {
+                    continue;
+                }
+
+                List<Integer> lIds = lGroup.getValue();
+
+                if (lIds.size() == 1 && rGroup.size() == 1) {
+                    mapIdentical(l, r, lIds.get(0), rGroup.get(0));
+                } else if ((long) lIds.size() * rGroup.size() <= MAX_AMBIGUOUS_PAIRS) {
+                    mapAmbiguous(l, r, lIds, rGroup);
+                } else {
+                    for (int i = 0; i < Math.min(lIds.size(), rGroup.size()); i++) {
+                        mapIdentical(l, r, lIds.get(i), rGroup.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the nodes of the given tree grouped by their height.
+     *
+     * @param tree
+     *         the tree
+     * @return the lists of nodes (in pre-order) of every height
+     */
+    private List<List<Integer>> byHeight(Tree<T> tree) {
+        List<List<Integer>> heights = new ArrayList<>();
+
+        for (int id = 0; id < tree.numNodes(); id++) {
+            int h = tree.height[id];
+
+            while (heights.size() <= h) {
+                heights.add(new ArrayList<>());
+            }
+
+            heights.get(h).add(id);
+        }
+
+        return heights;
+    }
+
+    /**
+     * Groups those of the given nodes that are not matched yet by their structural hashes.
+     *
+     * @param tree
+     *         the tree the nodes belong to
+     * @param ids
+     *         the nodes
+     * @return the unmatched nodes grouped by their structural hash
+     */
+    private Map<TreeHash, List<Integer>> byHash(Tree<T> tree, List<Integer> ids) {
+        Map<TreeHash, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int id : ids) {
+
+            if (tree.partner[id] == -1) {
+                groups.computeIfAbsent(tree.snapshot.hash(id), h -> new ArrayList<>()).add(id);
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Matches the nodes of two groups of identical subtrees greedily. Pairs whose parents match are preferred over
+     * other pairs, then pairs whose previous and next siblings are already matched with each other and finally pairs
+     * whose positions among their siblings are closer. Since taller subtrees are matched first, the siblings anchor
+     * small subtrees that occur many times, e.g. identical statements, next to their unique neighbors.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lIds
+     *         the roots of the identical subtrees in the left tree
+     * @param rIds
+     *         the roots of the identical subtrees in the right tree
+     */
+    private void mapAmbiguous(Tree<T> l, Tree<T> r, List<Integer> lIds, List<Integer> rIds) {
+        List<int[]> pairs = new ArrayList<>(lIds.size() * rIds.size());
+
+        for (int lId : lIds) {
+            for (int rId : rIds) {
+                int lParent = l.parent(lId);
+                int rParent = r.parent(rId);
+                boolean parentsMatch = lParent != -1 && rParent != -1 && l.node(lParent).matches(r.node(rParent));
+
+                int neighbors = 0;
+
+                if (l.previous[lId] != -1 && r.previous[rId] != -1 && l.partner[l.previous[lId]] == r.previous[rId]) {
+                    neighbors++;
+                }
+
+                if (l.next(lId) != -1 && r.next(rId) != -1 && l.partner[l.next(lId)] == r.next(rId)) {
+                    neighbors++;
+                }
+
+                pairs.add(new int[] {parentsMatch ? 0 : 1, 2 - neighbors, Math.abs(l.index[lId] - r.index[rId]), lId, rId});
+            }
+        }
+
+        pairs.sort((a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                int c = Integer.compare(a[i], b[i]);
+
+                if (c != 0) {
+                    return c;
+                }
+            }
+
+            return 0;
+        });
+
+        for (int[] pair : pairs) {
+
+            if (l.partner[pair[3]] == -1 && r.partner[pair[4]] == -1) {
+                mapIdentical(l, r, pair[3], pair[4]);
+            }
+        }
+    }
+
+    /**
+     * Matches all nodes of the subtrees rooted in <code>lId</code> and <code>rId</code> if they are identical.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lId
+     *         the root of the left subtree
+     * @param rId
+     *         the root of the right subtree
+     */
+    private void mapIdentical(Tree<T> l, Tree<T> r, int lId, int rId) {
+        T lNode = l.node(lId);
+        T rNode = r.node(rId);
+
+        if (!Artifacts.identicalTrees(lNode, rNode)) {
+            LOG.warning(() -> String.format("Tree hash collision between %s and %s.", lNode.getId(), rNode.getId()));
+            return;
+        }
+
+        for (int i = 0; i < l.size(lId); i++) {
+            map(l, r, lId + i, rId + i);
+        }
+    }
+
+    /**
+     * Matches the containers of the left tree bottom-up with the containers of the right tree that contain most of
+     * the partners of their descendants.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     */
+    private void bottomUp(Tree<T> l, Tree<T> r) {
+        int[] common = new int[r.numNodes()];
+        byte[] candidate = new byte[r.numNodes()]; // 0 unknown, 1 candidate, 2 no candidate
+        List<Integer> touched = new ArrayList<>();
+
+        // in reverse pre-order all descendants of a node are visited before the node itself
+        for (int lId = l.numNodes() - 1; lId >= 0; lId--) {
+
+            if (l.partner[lId] != -1 || l.size(lId) == 1) {
+                continue;
+            }
+
+            T lNode = l.node(lId);
+
+            for (int d = lId + 1; d < l.end(lId); d++) {
+                int p = l.partner[d];
+
+                if (p == -1) {
+                    continue;
+                }
+
+                for (int a = r.parent(p); a != -1; a = r.parent(a)) {
+
+                    if (candidate[a] == 0) {
+                        candidate[a] = (r.partner[a] == -1 && lNode.matches(r.node(a))) ? (byte) 1 : (byte) 2;
+                        touched.add(a);
+                    }
+
+                    if (candidate[a] == 1) {
+                        common[a]++;
+                    }
+                }
+            }
+
+            int best = -1;
+            double bestDice = MIN_DICE;
+
+            for (int a : touched) {
+
+                if (candidate[a] == 1) {
+                    double dice = 2.0 * common[a] / ((l.size(lId) - 1) + (r.size(a) - 1));
+
+                    if (dice > bestDice || (dice == bestDice && (best == -1 || a < best))) {
+                        best = a;
+                        bestDice = dice;
+                    }
+                }
+
+                common[a] = 0;
+                candidate[a] = 0;
+            }
+
+            touched.clear();
+
+            if (best != -1) {
+                map(l, r, lId, best);
+                recover(l, r, lId, best);
+            }
+        }
+    }
+
+    /**
+     * Matches the unmatched children of two matched containers and recursively those of the resulting pairs. First,
+     * children that are roots of identical subtrees are matched, then children that match according to
+     * {@link Artifact#matches(Artifact)}, each in the order of the children. The children of the right container are
+     * grouped by their structural hash and label beforehand so that every recovery step is linear in the number
+     * of children.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lId
+     *         the left container
+     * @param rId
+     *         the right container
+     */
+    private void recover(Tree<T> l, Tree<T> r, int lId, int rId) {
+        Deque<int[]> containers = new ArrayDeque<>();
+        containers.push(new int[] {lId, rId});
+
+        while (!containers.isEmpty()) {
+            int[] pair = containers.pop();
+            List<Integer> lChildren = unmatchedChildren(l, pair[0]);
+            List<Integer> rChildren = unmatchedChildren(r, pair[1]);
+
+            if (lChildren.isEmpty() || rChildren.isEmpty()) {
+                continue;
+            }
+
+            Map<TreeHash, Deque<Integer>> rByHash = new HashMap<>();
+            Map<Integer, Deque<Integer>> rByLabel = new HashMap<>();
+
+            for (int rChild : rChildren) {
+                rByHash.computeIfAbsent(r.snapshot.hash(rChild), h -> new ArrayDeque<>()).add(rChild);
+                rByLabel.computeIfAbsent(r.snapshot.label(rChild), k -> new ArrayDeque<>()).add(rChild);
+            }
+
+            for (int lChild : lChildren) {
+                T lNode = l.node(lChild);
+                Deque<Integer> identical = rByHash.getOrDefault(l.snapshot.hash(lChild), EMPTY);
+
+                while (!identical.isEmpty()) {
+                    int rChild = identical.poll();
+
+                    if (r.partner[rChild] == -1 && Artifacts.identicalTrees(lNode, r.node(rChild))) {
+                        mapIdentical(l, r, lChild, rChild);
+                        break;
+                    }
+                }
+            }
+
+            for (int lChild : lChildren) {
+
+                if (l.partner[lChild] != -1) {
+                    continue;
+                }
+
+                T lNode = l.node(lChild);
+                Deque<Integer> matching = rByLabel.getOrDefault(l.snapshot.label(lChild), EMPTY);
+
+                while (!matching.isEmpty()) {
+                    int rChild = matching.poll();
+
+                    if (r.partner[rChild] == -1 && lNode.matches(r.node(rChild))) {
+                        map(l, r, lChild, rChild);
+                        containers.push(new int[] {lChild, rChild});
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the children of the given node that are not matched.
+     *
+     * @param tree
+     *         the tree
+     * @param id
+     *         the node
+     * @return the unmatched children
+     */
+    private List<Integer> unmatchedChildren(Tree<T> tree, int id) {
+        List<Integer> children = new ArrayList<>();
+
+        for (int child = tree.snapshot.firstChild(id); child != -1; child = tree.snapshot.nextSibling(child)) {
+
+            if (tree.partner[child] == -1) {
+                children.add(child);
+            }
+        }
+
+        return children;
+    }
+
+    /**
+     * Matches the two nodes.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lId
+     *         the left node
+     * @param rId
+     *         the right node
+     */
+    private void map(Tree<T> l, Tree<T> r, int lId, int rId) {
+        l.partner[lId] = rId;
+        r.partner[rId] = lId;
+    }
+
+    /**
+     * Makes the matches between the children of two matched nodes with ordered children preserve their order. Of the
+     * matched children, only the subsequence whose partners are in the same order and that covers the most matched
+     * nodes is kept. Larger subtrees are thereby preferred over the many small identical subtrees that the top-down
+     * phase may have paired by their positions alone, and among subtrees of equal size identical pairs are preferred
+     * over pairs that only match by their labels. Remaining ties are broken by the structural hashes of the pairs
+     * instead of their positions, so that the base/left, base/right and left/right phases of a three-way merge keep the
+     * same children of a moved pair, otherwise the ordered merge would insert the other one twice. The remaining
+     * children are then matched again in order between the kept pairs, first the roots of identical subtrees, then
+     * children that match according to {@link Artifact#matches(Artifact)}.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lId
+     *         the left node
+     * @param rId
+     *         the right node
+     */
+    private void keepOrder(Tree<T> l, Tree<T> r, int lId, int rId) {
+        List<Integer> lChildren = children(l, r, lId, rId);
+        List<Integer> rChildren = children(r, l, rId, lId);
+
+        // the heaviest increasing subsequence of the positions of the partners, found with a Fenwick tree for maxima
+        int n = lChildren.size();
+        int m = rChildren.size();
+        int[] previous = new int[n];
+        long[] maxWeight = new long[m + 1];
+        int[] maxChild = new int[m + 1];
+        int last = -1;
+        long best = 0;
+
+        Arrays.fill(maxChild, -1);
+
+        for (int i = 0; i < n; i++) {
+            int lChild = lChildren.get(i);
+
+            if (l.partner[lChild] == -1) {
+                continue;
+            }
+
+            int position = r.index[l.partner[lChild]];
+            long prefix = 0;
+
+            previous[i] = -1;
+
+            for (int k = position; k > 0; k -= k & -k) {
+
+                if (maxWeight[k] > prefix) {
+                    prefix = maxWeight[k];
+                    previous[i] = maxChild[k];
+                }
+            }
+
+            int rChild = l.partner[lChild];
+            long identical = l.snapshot.hash(lChild).equals(r.snapshot.hash(rChild)) ? 1 : 0;
+            long tieBreak = (l.snapshot.hash(lChild).getLow() + r.snapshot.hash(rChild).getLow()) & 0xFFFF;
+            long total = prefix + (((long) l.size(lChild) << 1 | identical) << 32 | tieBreak);
+
+            for (int k = position + 1; k <= m; k += k & -k) {
+
+                if (total > maxWeight[k]) {
+                    maxWeight[k] = total;
+                    maxChild[k] = i;
+                }
+            }
+
+            if (total > best) {
+                best = total;
+                last = i;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+
+        for (int i = last; i != -1; i = previous[i]) {
+            keep[i] = true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int lChild = lChildren.get(i);
+
+            if (!keep[i] && l.partner[lChild] != -1) {
+                r.partner[l.partner[lChild]] = -1;
+                l.partner[lChild] = -1;
+            }
+        }
+
+        // match the remaining children in order between the kept pairs
+        int lFrom = 0;
+        int rFrom = 0;
+
+        for (int i = 0; i <= n; i++) {
+
+            if (i < n && !keep[i]) {
+                continue;
+            }
+
+            int lTo = i;
+            int rTo = i < n ? r.index[l.partner[lChildren.get(i)]] : m;
+
+            recoverInOrder(l, r, lChildren.subList(lFrom, lTo), rChildren.subList(rFrom, rTo));
+
+            lFrom = lTo + 1;
+            rFrom = rTo + 1;
+        }
+    }
+
+    /**
+     * Returns the children of a node and drops the matches of those that are matched with a node that is not a child
+     * of the partner of the node. Such matches would be dropped when the child is visited anyway.
+     *
+     * @param tree
+     *         the tree of the node
+     * @param other
+     *         the other tree
+     * @param id
+     *         the node
+     * @param partner
+     *         the partner of the node
+     * @return the children of the node
+     */
+    private List<Integer> children(Tree<T> tree, Tree<T> other, int id, int partner) {
+        List<Integer> children = new ArrayList<>();
+
+        for (int child = tree.snapshot.firstChild(id); child != -1; child = tree.snapshot.nextSibling(child)) {
+            int p = tree.partner[child];
+
+            if (p != -1 && other.parent(p) != partner) {
+                tree.partner[child] = -1;
+                other.partner[p] = -1;
+            }
+
+            children.add(child);
+        }
+
+        return children;
+    }
+
+    /**
+     * Matches the unmatched children in two gaps between matched children of two matched nodes without changing
+     * their order. First, children that are roots of identical subtrees are matched greedily, then children that
+     * match according to {@link Artifact#matches(Artifact)} between those pairs.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @param lChildren
+     *         the unmatched children in the gap of the left node
+     * @param rChildren
+     *         the unmatched children in the gap of the right node
+     */
+    private void recoverInOrder(Tree<T> l, Tree<T> r, List<Integer> lChildren, List<Integer> rChildren) {
+
+        if (lChildren.isEmpty() || rChildren.isEmpty()) {
+            return;
+        }
+
+        int next = 0;
+
+        for (int lChild : lChildren) {
+            T lNode = l.node(lChild);
+            TreeHash hash = l.snapshot.hash(lChild);
+
+            for (int k = next; k < rChildren.size(); k++) {
+                int rChild = rChildren.get(k);
+
+                if (hash.equals(r.snapshot.hash(rChild)) && Artifacts.identicalTrees(lNode, r.node(rChild))) {
+                    unmapSubtree(l, r, lChild);
+                    unmapSubtree(r, l, rChild);
+                    mapIdentical(l, r, lChild, rChild);
+                    next = k + 1;
+                    break;
+                }
+            }
+        }
+
+        next = 0;
+
+        for (int lChild : lChildren) {
+
+            if (l.partner[lChild] != -1) {
+                next = rChildren.indexOf(l.partner[lChild]) + 1;
+                continue;
+            }
+
+            T lNode = l.node(lChild);
+
+            for (int k = next; k < rChildren.size() && r.partner[rChildren.get(k)] == -1; k++) {
+                int rChild = rChildren.get(k);
+
+                if (lNode.matches(r.node(rChild))) {
+                    map(l, r, lChild, rChild);
+                    recover(l, r, lChild, rChild);
+                    next = k + 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the matches of all nodes in the subtree rooted in the given node. The descendants of an unmatched node may
+     * still be matched, those matches would be dropped when the descendants are visited anyway.
+     *
+     * @param tree
+     *         the tree of the node
+     * @param other
+     *         the other tree
+     * @param id
+     *         the root of the subtree
+     */
+    private void unmapSubtree(Tree<T> tree, Tree<T> other, int id) {
+
+        for (int i = id; i < tree.end(id); i++) {
+
+            if (tree.partner[i] != -1) {
+                other.partner[tree.partner[i]] = -1;
+                tree.partner[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Drops the matches that move a node to a different parent or change the order of ordered children and
+     * constructs the resulting {@link Matchings}.
+     *
+     * @param l
+     *         the left tree
+     * @param r
+     *         the right tree
+     * @return the {@link Matchings} between the two trees
+     */
+    private Matchings<T> matchings(Tree<T> l, Tree<T> r) {
+
+        // in pre-order every parent is visited before its children
+        for (int lId = 0; lId < l.numNodes(); lId++) {
+            int rId = l.partner[lId];
+
+            if (rId == -1) {
+                continue;
+            }
+
+            if (lId != 0 && (r.parent(rId) == -1 || l.partner[l.parent(lId)] != r.parent(rId))) {
+                l.partner[lId] = -1;
+                r.partner[rId] = -1;
+            } else if (l.node(lId).hasOrderedChildren() || r.node(rId).hasOrderedChildren()) {
+                keepOrder(l, r, lId, rId);
+            }
+        }
+
+        int[] scores = new int[l.numNodes()];
+
+        for (int d = 0; d < l.numNodes(); d++) {
+            int p = l.partner[d];
+
+            if (p == -1) {
+                continue;
+            }
+
+            for (int a = d; a != -1; a = l.parent(a)) {
+                int b = l.partner[a];
+
+                if (b != -1 && r.contains(b, p)) {
+                    scores[a]++;
+                }
+            }
+        }
+
+        Matchings<T> matchings = new Matchings<>();
+
+        for (int lId = 0; lId < l.numNodes(); lId++) {
+            int rId = l.partner[lId];
+
+            if (rId != -1) {
+                Matching<T> matching = new Matching<>(l.node(lId), r.node(rId), scores[lId]);
+
+                matching.setAlgorithm(ID);
+                matchings.add(matching);
+            }
+        }
+
+        LOG.fine(() -> String.format("%s matched %d of %d left and %d right nodes.", ID, matchings.size(),
+                                     l.numNodes(), r.numNodes()));
+
+        return matchings;
+    }
+}
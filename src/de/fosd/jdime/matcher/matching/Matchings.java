@@ -31,12 +31,13 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.util.UnorderedTuple;
@@ -44,6 +45,12 @@ import de.fosd.jdime.util.UnorderedTuple;
 /**
  * A <code>Set</code> of <code>Matching</code>s. Adds methods to retrieve specific elements of the <code>Set</code>
  * by their matched <code>Artifact</code>s.
+ * <p>
+ * The lookup methods are backed by indexes that compare <code>Artifact</code>s by identity. The indexes store the
+ * first <code>Matching</code> added for every pair of matched <code>Artifact</code>s and for every left and right
+ * <code>Artifact</code> respectively. They are maintained by all methods modifying the <code>Set</code>, including
+ * removals through its <code>Iterator</code>, so that {@link #get(Artifact, Artifact)}, {@link #getLeft(Artifact)},
+ * {@link #getRight(Artifact)} and {@link #getScore(Artifact, Artifact)} run in constant time.
  *
  * @param <T>
  *         the type of the <code>Artifact</code>s
@@ -52,7 +59,66 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
 
     private static final long serialVersionUID = 1L;
 
-    private final UnorderedTuple<T, T> tuple = UnorderedTuple.of(null, null);
+    /**
+     * An unordered pair of <code>Artifact</code>s that are compared by identity. Used as the key of the index
+     * containing the <code>Matching</code>s by their matched <code>Artifact</code>s.
+     */
+    private static final class Key {
+
+        private final Object x;
+        private final Object y;
+
+        private Key(UnorderedTuple<?, ?> tuple) {
+            this(tuple.getX(), tuple.getY());
+        }
+
+        private Key(Object x, Object y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return (x == key.x && y == key.y) || (x == key.y && y == key.x);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(x) ^ System.identityHashCode(y);
+        }
+    }
+
+    private transient Map<Key, Matching<T>> byArtifacts;
+    private transient Map<T, Matching<T>> byLeft;
+    private transient Map<T, Matching<T>> byRight;
+
+    /**
+     * Constructs a new empty <code>Matchings</code> instance.
+     */
+    public Matchings() {
+        super();
+    }
+
+    /**
+     * Constructs a new <code>Matchings</code> instance containing the <code>Matching</code>s from the given
+     * <code>Collection</code>.
+     *
+     * @param matchings
+     *         the <code>Matching</code>s to add
+     */
+    public Matchings(Collection<? extends Matching<T>> matchings) {
+        super(Math.max((int) (matchings.size() / .75f) + 1, 16));
+        addAll(matchings);
+    }
 
     /**
      * Creates a new <code>Matchings</code> instance containing a single <code>Matching</code> that matches
@@ -105,7 +171,7 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
             return Optional.empty();
         }
 
-        return stream().filter(matching -> matching.getMatchedArtifacts().equals(artifacts)).findFirst();
+        return Optional.ofNullable(byArtifacts().get(new Key(left, right)));
     }
 
     /**
@@ -120,15 +186,12 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      * @return optionally the <code>Matching</code> matching the given <code>artifacts</code>
      */
     public Optional<Matching<T>> get(T left, T right) {
-        tuple.setX(left);
-        tuple.setY(right);
-
-        Optional<Matching<T>> matching = get(tuple);
 
-        tuple.setX(null);
-        tuple.setY(null);
+        if (left.isChoice()) {
+            return get(UnorderedTuple.of(left, right));
+        }
 
-        return matching;
+        return Optional.ofNullable(byArtifacts().get(new Key(left, right)));
     }
 
     /**
@@ -159,7 +222,7 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      * @return optionally the first <code>Matching</code> containing <code>artifact</code>
      */
     public Optional<Matching<T>> getLeft(T artifact) {
-        return get(artifact, Matching::getLeft);
+        return Optional.ofNullable(byLeft().get(artifact));
     }
 
     /**
@@ -171,19 +234,7 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      * @return optionally the first <code>Matching</code> containing <code>artifact</code>
      */
     public Optional<Matching<T>> getRight(T artifact) {
-        return get(artifact, Matching::getRight);
-    }
-
-    /**
-     * Returns the first matching whose result of the application of <code>getArtifact</code> is equal to
-     * <code>artifact</code>.
-     *
-     * @param artifact
-     *         the <code>Artifact</code> to search for
-     * @return optionally the first <code>Matching</code> containing <code>artifact</code>
-     */
-    private Optional<Matching<T>> get(T artifact, Function<Matching<T>, T> getArtifact) {
-        return stream().filter(m -> getArtifact.apply(m) == artifact).findFirst();
+        return Optional.ofNullable(byRight().get(artifact));
     }
 
     /**
@@ -195,13 +246,7 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      * @return optionally the matching score for the given <code>artifacts</code>
      */
     public Optional<Integer> getScore(UnorderedTuple<T, T> artifacts) {
-        Optional<Matching<T>> matching = get(artifacts);
-
-        if (matching.isPresent()) {
-            return Optional.of(matching.get().getScore());
-        } else {
-            return Optional.empty();
-        }
+        return get(artifacts).map(Matching::getScore);
     }
 
     /**
@@ -215,15 +260,7 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      * @return optionally the matching score for the given <code>artifacts</code>
      */
     public Optional<Integer> getScore(T left, T right) {
-        tuple.setX(left);
-        tuple.setY(right);
-
-        Optional<Integer> matching = getScore(tuple);
-
-        tuple.setX(null);
-        tuple.setY(null);
-
-        return matching;
+        return get(left, right).map(Matching::getScore);
     }
 
     /**
@@ -234,8 +271,196 @@ public class Matchings<T extends Artifact<T>> extends HashSet<Matching<T>> {
      */
     public void addAllMatchings(Collection<? extends Matchings<T>> matchings) {
         for (Matchings<T> matching : matchings) {
-            addAll(matching);
+            for (Matching<T> m : matching) {
+                add(m);
+            }
+        }
+    }
+
+    @Override
+    public boolean add(Matching<T> matching) {
+
+        if (!super.add(matching)) {
+            return false;
+        }
+
+        index(matching);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+
+        if (!super.remove(o)) {
+            return false;
         }
+
+        @SuppressWarnings("unchecked")
+        Matching<T> matching = (Matching<T>) o;
+
+        unIndex(matching);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        byArtifacts = null;
+        byLeft = null;
+        byRight = null;
+    }
+
+    @Override
+    public Iterator<Matching<T>> iterator() {
+        Iterator<Matching<T>> it = super.iterator();
+
+        return new Iterator<Matching<T>>() {
+
+            private Matching<T> last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Matching<T> next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                unIndex(last);
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Matchings<T> clone() {
+        Matchings<T> clone = (Matchings<T>) super.clone();
+
+        clone.byArtifacts = null;
+        clone.byLeft = null;
+        clone.byRight = null;
+
+        return clone;
+    }
+
+    /**
+     * Adds the given <code>Matching</code> to the indexes unless they already contain a <code>Matching</code> for
+     * the same keys. Does nothing if the indexes have not been built yet.
+     *
+     * @param matching
+     *         the <code>Matching</code> to add
+     */
+    private void index(Matching<T> matching) {
+
+        if (byArtifacts == null) {
+            return;
+        }
+
+        byArtifacts.putIfAbsent(new Key(matching.getMatchedArtifacts()), matching);
+        byLeft.putIfAbsent(matching.getLeft(), matching);
+        byRight.putIfAbsent(matching.getRight(), matching);
+    }
+
+    /**
+     * Removes the given <code>Matching</code> from the indexes. If it was the indexed <code>Matching</code> for one
+     * of its keys, the <code>Set</code> is searched for another <code>Matching</code> with that key.
+     *
+     * @param matching
+     *         the <code>Matching</code> that was removed
+     */
+    private void unIndex(Matching<T> matching) {
+
+        if (byArtifacts == null) {
+            return;
+        }
+
+        Key key = new Key(matching.getMatchedArtifacts());
+        T left = matching.getLeft();
+        T right = matching.getRight();
+
+        if (byArtifacts.get(key) == matching) {
+            byArtifacts.remove(key);
+            super.stream().filter(m -> key.equals(new Key(m.getMatchedArtifacts()))).findFirst()
+                          .ifPresent(m -> byArtifacts.put(key, m));
+        }
+
+        if (byLeft.get(left) == matching) {
+            byLeft.remove(left);
+            super.stream().filter(m -> m.getLeft() == left).findFirst().ifPresent(m -> byLeft.put(left, m));
+        }
+
+        if (byRight.get(right) == matching) {
+            byRight.remove(right);
+            super.stream().filter(m -> m.getRight() == right).findFirst().ifPresent(m -> byRight.put(right, m));
+        }
+    }
+
+    /**
+     * Builds the indexes from the current contents of the <code>Set</code>. The indexes are built lazily on the first
+     * lookup so that the many short-lived <code>Matchings</code> that are only merged into their parents never pay
+     * for them. This also covers deserialized instances and clones as the indexes are neither serialized nor shared.
+     */
+    private void buildIndexes() {
+        int capacity = Math.max(size(), 16);
+
+        byArtifacts = new HashMap<>(capacity * 4 / 3 + 1);
+        byLeft = new IdentityHashMap<>(capacity);
+        byRight = new IdentityHashMap<>(capacity);
+
+        for (Iterator<Matching<T>> it = super.iterator(); it.hasNext(); ) {
+            Matching<T> matching = it.next();
+
+            byArtifacts.putIfAbsent(new Key(matching.getMatchedArtifacts()), matching);
+            byLeft.putIfAbsent(matching.getLeft(), matching);
+            byRight.putIfAbsent(matching.getRight(), matching);
+        }
+    }
+
+    /**
+     * Returns the index of the <code>Matching</code>s by their matched <code>Artifact</code>s.
+     *
+     * @return the index
+     */
+    private Map<Key, Matching<T>> byArtifacts() {
+
+        if (byArtifacts == null) {
+            buildIndexes();
+        }
+
+        return byArtifacts;
+    }
+
+    /**
+     * Returns the index of the <code>Matching</code>s by their left <code>Artifact</code>s.
+     *
+     * @return the index
+     */
+    private Map<T, Matching<T>> byLeft() {
+
+        if (byLeft == null) {
+            buildIndexes();
+        }
+
+        return byLeft;
+    }
+
+    /**
+     * Returns the index of the <code>Matching</code>s by their right <code>Artifact</code>s.
+     *
+     * @return the index
+     */
+    private Map<T, Matching<T>> byRight() {
+
+        if (byRight == null) {
+            buildIndexes();
+        }
+
+        return byRight;
     }
 
     /**
@@ -0,0 +1,370 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.ordered.mceSubtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.artifact.Artifact;
+
+/**
+ * A primitive encoding of the {@link BalancedSequence} of a tree for computing longest common balanced sequences.
+ * <p>
+ * The balanced sequences produced while decomposing the balanced sequence of a tree are always the sequences of
+ * the nodes with pre-order indices in a range <code>[a, b)</code> where <code>b</code> is the end of the subtree of
+ * some node <code>x &lt; a</code> (or the size of the tree). Instead of allocating new sequences, this class
+ * identifies every such range by an integer id that is computed in constant time from its bounds. The
+ * {@link #lcs(IntBalancedSequence, IntBalancedSequence)} computation is a bottom-up dynamic program over pairs of
+ * these ids using a flat <code>int</code> table. Node labels are encoded as <code>int</code> codes by their
+ * {@link Artifact#getMatchingKey() matching keys}.
+ *
+ * @param <T>
+ *         the type of the <code>Artifact</code>s
+ * @see BalancedSequence
+ */
+public final class IntBalancedSequence<T extends Artifact<T>> {
+
+    private static final Logger LOG = Logger.getLogger(IntBalancedSequence.class.getCanonicalName());
+
+    /**
+     * The maximum number of elements of an array.
+     */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The maximum fraction of the heap not in use that the tables of
+     * {@link #lcs(IntBalancedSequence, IntBalancedSequence)} may occupy.
+     */
+    private static final double MAX_HEAP_FRACTION = 0.5;
+
+    private static final int NO_RANGE = -1;
+
+    private final T tree;
+
+    /**
+     * The nodes of the tree in pre-order.
+     */
+    private final Object[] nodes;
+
+    /**
+     * The index after the last node of the subtree of every node.
+     */
+    private final int[] end;
+
+    /**
+     * For every possible end <code>b</code> of a range the smallest node whose subtree ends at <code>b</code> or
+     * <code>NO_RANGE - 1</code> if there is none. The ranges ending at <code>b</code> start at
+     * <code>lo[b] + 1</code> up to <code>b - 1</code>.
+     */
+    private final int[] lo;
+
+    /**
+     * For every possible end <code>b</code> of a range the id of the range <code>[lo[b] + 1, b)</code>.
+     */
+    private final int[] offset;
+
+    private final int numRanges;
+
+    /**
+     * Constructs a new <code>IntBalancedSequence</code> representing the given <code>tree</code> structure.
+     *
+     * @param tree
+     *         the tree of <code>Artifact</code>s
+     */
+    public IntBalancedSequence(T tree) {
+        this.tree = tree;
+
+        List<T> preOrder = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        Deque<T> stack = new ArrayDeque<>();
+        Deque<Integer> open = new ArrayDeque<>();
+
+        stack.push(tree);
+
+        // iterative pre-order traversal, a node is closed once a node outside of its subtree is reached
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+
+            while (!open.isEmpty() && preOrder.get(open.peek()) != node.getParent()) {
+                ends.set(open.pop(), preOrder.size());
+            }
+
+            open.push(preOrder.size());
+            preOrder.add(node);
+            ends.add(0);
+
+            for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
+            }
+        }
+
+        int size = preOrder.size();
+
+        while (!open.isEmpty()) {
+            ends.set(open.pop(), size);
+        }
+
+        this.nodes = preOrder.toArray();
+        this.end = ends.stream().mapToInt(Integer::intValue).toArray();
+
+        this.lo = new int[size + 1];
+        this.offset = new int[size + 1];
+
+        Arrays.fill(lo, NO_RANGE - 1);
+        lo[size] = NO_RANGE; // the virtual root containing the whole tree
+
+        for (int x = size - 1; x >= 0; x--) {
+            if (end[x] != size) {
+                lo[end[x]] = x;
+            }
+        }
+
+        int id = 0;
+
+        for (int b = 0; b <= size; b++) {
+            if (lo[b] >= NO_RANGE) {
+                offset[b] = id;
+                id += b - lo[b] - 1;
+            }
+        }
+
+        this.numRanges = id;
+    }
+
+    /**
+     * Returns the id of the non-empty range <code>[a, b)</code>, or <code>NO_RANGE</code> if the range is empty.
+     *
+     * @param a
+     *         the first node of the range
+     * @param b
+     *         the index after the last node of the range
+     * @return the id of the range
+     */
+    private int id(int a, int b) {
+        return a < b ? offset[b] + a - lo[b] - 1 : NO_RANGE;
+    }
+
+    /**
+     * Returns the length (being the number of nodes of the tree it represents) of the longest common balanced sequence
+     * between the balanced sequences <code>s</code> and <code>t</code>. The result is the same as the one of
+     * {@link BalancedSequence#lcs(BalancedSequence, BalancedSequence)} for the same trees.
+     *
+     * @param s
+     *         the first <code>IntBalancedSequence</code>
+     * @param t
+     *         the second <code>IntBalancedSequence</code>
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return the length of the longest common balanced sequence
+     */
+    public static <T extends Artifact<T>> int lcs(IntBalancedSequence<T> s, IntBalancedSequence<T> t) {
+        long cells = (long) s.numRanges * t.numRanges;
+        long nodePairs = (long) s.nodes.length * t.nodes.length;
+
+        if (!fitsInMemory(cells, nodePairs)) {
+            LOG.warning(() -> "Too many sub-problems (" + cells + ") for the primitive LCS table. Falling back to "
+                    + BalancedSequence.class.getSimpleName());
+            return BalancedSequence.lcs(new BalancedSequence<>(s.tree), new BalancedSequence<>(t.tree));
+        }
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] sCodes = s.codes(dictionary);
+        int[] tCodes = t.codes(dictionary);
+
+        int sLen = s.nodes.length;
+        int tLen = t.nodes.length;
+        int tRanges = t.numRanges;
+
+        // 0 = unknown, 1 = match, 2 = no match
+        byte[] matches = new byte[(int) nodePairs];
+        int[] results = new int[(int) cells];
+
+        int[] sOrder = s.rangesByLength();
+        int[] tOrder = t.rangesByLength();
+
+        for (int i = 0; i < sOrder.length; i += 2) {
+            int a = sOrder[i];
+            int b = sOrder[i + 1];
+            int sId = s.id(a, b);
+            int sRest = s.id(a + 1, b);
+            int sHead = s.id(a + 1, s.end[a]);
+            int sTail = s.id(s.end[a], b);
+
+            for (int j = 0; j < tOrder.length; j += 2) {
+                int c = tOrder[j];
+                int d = tOrder[j + 1];
+                int tId = t.id(c, d);
+
+                int result = Math.max(get(results, tRanges, sRest, tId), get(results, tRanges, sId, t.id(c + 1, d)));
+
+                if (sCodes[a] == tCodes[c] && matches(s, t, a, c, matches)) {
+                    int tHead = t.id(c + 1, t.end[c]);
+                    int tTail = t.id(t.end[c], d);
+                    int both = get(results, tRanges, sHead, tHead) + get(results, tRanges, sTail, tTail) + 1;
+
+                    result = Math.max(result, both);
+                }
+
+                results[sId * tRanges + tId] = result;
+            }
+        }
+
+        return results[s.id(0, sLen) * tRanges + t.id(0, tLen)];
+    }
+
+    /**
+     * Returns whether the tables used by {@link #lcs(IntBalancedSequence, IntBalancedSequence)} can be allocated. Both
+     * must fit into an array and together they may occupy at most {@link #MAX_HEAP_FRACTION} of the heap that is
+     * currently not in use.
+     *
+     * @param cells
+     *         the number of cells of the result table
+     * @param nodePairs
+     *         the number of cells of the table caching whether two nodes match
+     * @return true iff the tables can be allocated
+     */
+    private static boolean fitsInMemory(long cells, long nodePairs) {
+
+        if (cells > MAX_ARRAY_SIZE || nodePairs > MAX_ARRAY_SIZE) {
+            return false;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+
+        return Integer.BYTES * cells + nodePairs <= free * MAX_HEAP_FRACTION;
+    }
+
+    /**
+     * Returns the solution for the given pair of range ids or 0 if one of them is empty.
+     *
+     * @param results
+     *         the table of solutions
+     * @param tRanges
+     *         the number of ranges of the second sequence
+     * @param sId
+     *         the range id in the first sequence
+     * @param tId
+     *         the range id in the second sequence
+     * @return the solution
+     */
+    private static int get(int[] results, int tRanges, int sId, int tId) {
+        return sId == NO_RANGE || tId == NO_RANGE ? 0 : results[sId * tRanges + tId];
+    }
+
+    /**
+     * Returns whether node <code>a</code> of <code>s</code> matches node <code>c</code> of <code>t</code> as per
+     * {@link Artifact#matches(Artifact)}. Results are cached in <code>matches</code>.
+     *
+     * @param s
+     *         the first sequence
+     * @param t
+     *         the second sequence
+     * @param a
+     *         the node index in <code>s</code>
+     * @param c
+     *         the node index in <code>t</code>
+     * @param matches
+     *         the cache of results
+     * @param <T>
+     *         the type of the <code>Artifact</code>s
+     * @return whether the nodes match
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Artifact<T>> boolean matches(IntBalancedSequence<T> s, IntBalancedSequence<T> t,
+                                                           int a, int c, byte[] matches) {
+        int index = a * t.nodes.length + c;
+
+        if (matches[index] == 0) {
+            matches[index] = (byte) (((T) s.nodes[a]).matches((T) t.nodes[c]) ? 1 : 2);
+        }
+
+        return matches[index] == 1;
+    }
+
+    /**
+     * Encodes the nodes of this sequence as <code>int</code> codes. Nodes with equal matching keys receive the same
+     * code.
+     *
+     * @param dictionary
+     *         the codes of the matching keys encountered so far
+     * @return the codes of the nodes in pre-order
+     */
+    @SuppressWarnings("unchecked")
+    private int[] codes(Map<String, Integer> dictionary) {
+        int[] codes = new int[nodes.length];
+
+        for (int i = 0; i < nodes.length; i++) {
+            codes[i] = dictionary.computeIfAbsent(((T) nodes[i]).getMatchingKey(), k -> dictionary.size());
+        }
+
+        return codes;
+    }
+
+    /**
+     * Returns the bounds of all non-empty ranges of this sequence ordered by their length. The start of the i-th
+     * range is found at index <code>2 * i</code>, its end at index <code>2 * i + 1</code>.
+     *
+     * @return the bounds of the ranges
+     */
+    private int[] rangesByLength() {
+        int size = nodes.length;
+        int[] count = new int[size + 2];
+
+        for (int b = 0; b <= size; b++) {
+            if (lo[b] >= NO_RANGE) {
+                for (int a = lo[b] + 1; a < b; a++) {
+                    count[b - a + 1]++;
+                }
+            }
+        }
+
+        for (int len = 1; len <= size + 1; len++) {
+            count[len] += count[len - 1];
+        }
+
+        int[] order = new int[numRanges * 2];
+
+        for (int b = 0; b <= size; b++) {
+            if (lo[b] >= NO_RANGE) {
+                for (int a = lo[b] + 1; a < b; a++) {
+                    int pos = count[b - a]++;
+                    order[2 * pos] = a;
+                    order[2 * pos + 1] = b;
+                }
+            }
+        }
+
+        return order;
+    }
+}
@@ -26,10 +26,6 @@
  */
 package de.fosd.jdime.matcher.ordered.mceSubtree;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.matcher.MatcherInterface;
@@ -38,7 +34,7 @@ import de.fosd.jdime.matcher.matching.Matchings;
 import de.fosd.jdime.matcher.ordered.OrderedMatcher;
 
 /**
- * A <code>OrderedMatcher</code> that uses the <code>BalancedSequence</code> class to match <code>Artifact</code>s.
+ * A <code>OrderedMatcher</code> that uses the <code>IntBalancedSequence</code> class to match <code>Artifact</code>s.
  * Its {@link MatcherInterface#match(MergeContext, Artifact, Artifact)} method assumes that the given <code>Artifact</code>s
  * may be interpreted as ordered trees whose nodes are labeled via their {@link Artifact#matches(Artifact)} method.
  *
@@ -49,8 +45,6 @@ public class MCESubtreeMatcher<T extends Artifact<T>> extends OrderedMatcher<T>
 
     private static final String ID = MCESubtreeMatcher.class.getSimpleName();
 
-    private Map<BalancedSequence<T>, Set<BalancedSequence<T>>> decompositionCache;
-
     /**
      * Constructs a new <code>OrderedMatcher</code>
      *
@@ -59,19 +53,15 @@ public class MCESubtreeMatcher<T extends Artifact<T>> extends OrderedMatcher<T>
      */
     public MCESubtreeMatcher(MatcherInterface<T> matcher) {
         super(matcher);
-        this.decompositionCache = new HashMap<>();
     }
 
     @Override
     public Matchings<T> match(MergeContext context, T left, T right) {
-        BalancedSequence<T> lSeq = new BalancedSequence<>(left);
-        BalancedSequence<T> rSeq = new BalancedSequence<>(right);
-
-        lSeq.setDecompositionCache(decompositionCache);
-        rSeq.setDecompositionCache(decompositionCache);
+        IntBalancedSequence<T> lSeq = new IntBalancedSequence<>(left);
+        IntBalancedSequence<T> rSeq = new IntBalancedSequence<>(right);
 
         Matchings<T> matchings = new Matchings<>();
-        Matching<T> matching = new Matching<>(left, right, BalancedSequence.lcs(lSeq, rSeq));
+        Matching<T> matching = new Matching<>(left, right, IntBalancedSequence.lcs(lSeq, rSeq));
 
         matching.setAlgorithm(ID);
         matchings.add(matching);
@@ -0,0 +1,262 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.ordered.simpleTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.MatcherInterface;
+import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.matcher.ordered.OrderedMatcher;
+
+/**
+ * This ordered matcher computes the same maximum score alignment of the children as the {@link SimpleTreeMatcher}
+ * but uses Hirschberg's divide and conquer scheme to do so in space linear in the number of children.
+ * <p>
+ * The {@link SimpleTreeMatcher} keeps the <code>Matchings</code> of every child pair in its traceback table which
+ * is prohibitive for very long child lists (e.g. statement blocks or array initializers with thousands of
+ * elements). This matcher only keeps two rows of scores at a time and retains the <code>Matchings</code> of the
+ * child pairs on the chosen alignment. In exchange, the scores of child pairs are recomputed by the recursive
+ * matcher where necessary. If there are multiple optimal alignments the one chosen may differ from the one
+ * chosen by the {@link SimpleTreeMatcher}.
+ *
+ * @param <T>
+ *         type of artifacts
+ */
+public class LinearSpaceTreeMatcher<T extends Artifact<T>> extends OrderedMatcher<T> {
+
+    private static final String ID = LinearSpaceTreeMatcher.class.getSimpleName();
+
+    /**
+     * Constructs a new <code>LinearSpaceTreeMatcher</code> using the given <code>matcher</code> for recursive calls.
+     *
+     * @param matcher
+     *         the parent <code>MatcherInterface</code>
+     */
+    public LinearSpaceTreeMatcher(MatcherInterface<T> matcher) {
+        super(matcher);
+    }
+
+    @Override
+    public Matchings<T> match(MergeContext context, T left, T right) {
+        int rootMatching = left.matches(right) ? 1 : 0;
+
+        List<int[]> pairs = new ArrayList<>();
+        align(context, left, right, 0, left.getNumChildren(), 0, right.getNumChildren(), pairs);
+
+        int score = rootMatching;
+        List<Matchings<T>> children = new ArrayList<>(pairs.size());
+
+        for (int[] pair : pairs) {
+            T leftChild = left.getChild(pair[0]);
+            T rightChild = right.getChild(pair[1]);
+
+            Matchings<T> w = matcher.match(context, leftChild, rightChild);
+
+            score += w.get(leftChild, rightChild).get().getScore();
+            children.add(w);
+        }
+
+        // total matching score for these trees is the score of the matched children + the matching of the root nodes
+        Matching<T> matching = new Matching<>(left, right, score);
+        matching.setAlgorithm(ID);
+
+        Matchings<T> matchings = new Matchings<>();
+        matchings.add(matching);
+        matchings.addAllMatchings(children);
+
+        return matchings;
+    }
+
+    /**
+     * Adds the index pairs of the children of <code>left</code> and <code>right</code> that are part of an optimal
+     * alignment of the child ranges <code>[i0, i1)</code> and <code>[j0, j1)</code> to <code>pairs</code>. Pairs are
+     * added in ascending order.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param left
+     *         the left parent
+     * @param right
+     *         the right parent
+     * @param i0
+     *         the first left child index of the range
+     * @param i1
+     *         the left child index after the range
+     * @param j0
+     *         the first right child index of the range
+     * @param j1
+     *         the right child index after the range
+     * @param pairs
+     *         the <code>List</code> to add the aligned index pairs to
+     */
+    private void align(MergeContext context, T left, T right, int i0, int i1, int j0, int j1, List<int[]> pairs) {
+
+        if (i0 >= i1 || j0 >= j1) {
+            return;
+        }
+
+        if (i1 - i0 == 1) {
+            T leftChild = left.getChild(i0);
+            int best = 0;
+            int bestJ = -1;
+
+            for (int j = j0; j < j1; j++) {
+                int s = score(context, leftChild, right.getChild(j));
+
+                if (s > best) {
+                    best = s;
+                    bestJ = j;
+                }
+            }
+
+            if (bestJ >= 0) {
+                pairs.add(new int[] {i0, bestJ});
+            }
+
+            return;
+        }
+
+        int mid = (i0 + i1) >>> 1;
+        int[] forward = forward(context, left, right, i0, mid, j0, j1);
+        int[] backward = backward(context, left, right, mid, i1, j0, j1);
+
+        int split = 0;
+
+        for (int k = 1; k < forward.length; k++) {
+            if (forward[k] + backward[k] > forward[split] + backward[split]) {
+                split = k;
+            }
+        }
+
+        align(context, left, right, i0, mid, j0, j0 + split, pairs);
+        align(context, left, right, mid, i1, j0 + split, j1, pairs);
+    }
+
+    /**
+     * Computes the last row of the simple tree matching score table for the child ranges <code>[i0, i1)</code> and
+     * <code>[j0, j1)</code>. Index <code>k</code> of the result contains the best score for aligning the left range
+     * with the right children <code>[j0, j0 + k)</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param left
+     *         the left parent
+     * @param right
+     *         the right parent
+     * @param i0
+     *         the first left child index of the range
+     * @param i1
+     *         the left child index after the range
+     * @param j0
+     *         the first right child index of the range
+     * @param j1
+     *         the right child index after the range
+     * @return the scores of the last row
+     */
+    private int[] forward(MergeContext context, T left, T right, int i0, int i1, int j0, int j1) {
+        int n = j1 - j0;
+        int[] prev = new int[n + 1];
+        int[] cur = new int[n + 1];
+
+        for (int i = i0; i < i1; i++) {
+            T leftChild = left.getChild(i);
+
+            for (int k = 1; k <= n; k++) {
+                int diag = prev[k - 1] + score(context, leftChild, right.getChild(j0 + k - 1));
+                cur[k] = Math.max(Math.max(cur[k - 1], prev[k]), diag);
+            }
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        return prev;
+    }
+
+    /**
+     * Computes the first row of the simple tree matching score table for the reversed child ranges
+     * <code>[i0, i1)</code> and <code>[j0, j1)</code>. Index <code>k</code> of the result contains the best score
+     * for aligning the left range with the right children <code>[j0 + k, j1)</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param left
+     *         the left parent
+     * @param right
+     *         the right parent
+     * @param i0
+     *         the first left child index of the range
+     * @param i1
+     *         the left child index after the range
+     * @param j0
+     *         the first right child index of the range
+     * @param j1
+     *         the right child index after the range
+     * @return the scores of the first row
+     */
+    private int[] backward(MergeContext context, T left, T right, int i0, int i1, int j0, int j1) {
+        int n = j1 - j0;
+        int[] prev = new int[n + 1];
+        int[] cur = new int[n + 1];
+
+        for (int i = i1 - 1; i >= i0; i--) {
+            T leftChild = left.getChild(i);
+
+            for (int k = n - 1; k >= 0; k--) {
+                int diag = prev[k + 1] + score(context, leftChild, right.getChild(j0 + k));
+                cur[k] = Math.max(Math.max(cur[k + 1], prev[k]), diag);
+            }
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        return prev;
+    }
+
+    /**
+     * Returns the score of the <code>Matching</code> of <code>leftChild</code> and <code>rightChild</code> computed
+     * by the recursive matcher. The <code>Matchings</code> themselves are discarded.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param leftChild
+     *         the left child
+     * @param rightChild
+     *         the right child
+     * @return the score of matching the two children
+     */
+    private int score(MergeContext context, T leftChild, T rightChild) {
+        return matcher.match(context, leftChild, rightChild).get(leftChild, rightChild).get().getScore();
+    }
+}
@@ -32,6 +32,7 @@ import java.util.List;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.ChildPairMatcher;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
@@ -74,6 +75,8 @@ public class SimpleTreeMatcher<T extends Artifact<T>> extends OrderedMatcher<T>
         // number of first-level subtrees of t2
         int n = right.getNumChildren();
 
+        Matchings<T>[][] childMatchings = ChildPairMatcher.matchChildren(context, matcher, left, right);
+
         int[][] matrixM = new int[m + 1][n + 1];
 
         @SuppressWarnings("unchecked")
@@ -94,7 +97,7 @@ public class SimpleTreeMatcher<T extends Artifact<T>> extends OrderedMatcher<T>
                 T leftChild = left.getChild(i - 1);
                 T rightChild = right.getChild(j - 1);
 
-                Matchings<T> w = matcher.match(context, leftChild, rightChild);
+                Matchings<T> w = childMatchings[i - 1][j - 1];
                 Matching<T> matching = w.get(leftChild, rightChild).get();
 
                 if (matrixM[i][j - 1] > matrixM[i - 1][j]) {
@@ -26,103 +26,137 @@
  */
 package de.fosd.jdime.matcher.unordered;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Logger;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.artifact.TreeHash;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.matcher.MatcherInterface;
+import de.fosd.jdime.matcher.TreeSnapshot;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
 
 /**
  * A {@link MatcherInterface matcher} that constructs {@link Matchings} between subtrees that match according to their
- * {@link Artifact#getTreeHash()} method.
+ * {@link Artifact#getStructuralHash()} method. Subtrees with equal hashes are verified using
+ * {@link Artifacts#identicalTrees(Artifact, Artifact)} before they are matched. The trees are examined using
+ * {@link TreeSnapshot TreeSnapshots}, identical subtrees are therefore contiguous ranges of nodes. After
+ * {@link #matchTrees(TreeSnapshot, TreeSnapshot)} was called, the matcher may be queried by multiple threads
+ * concurrently.
  *
  * @param <T>
  *         the type of the {@link Artifact Artifacts} being matched
  */
 public class IdenticalSubtreeMatcher<T extends Artifact<T>> implements MatcherInterface<T> {
 
-    private Map<T, T> matches;
+    private static final Logger LOG = Logger.getLogger(IdenticalSubtreeMatcher.class.getCanonicalName());
+
+    private TreeSnapshot<T> left;
+    private TreeSnapshot<T> right;
+
+    /**
+     * For every node of the left snapshot the index of the node of the right snapshot it was matched with or -1.
+     */
+    private int[] partner;
 
     /**
      * Constructs a new {@link IdenticalSubtreeMatcher}.
      */
     public IdenticalSubtreeMatcher() {
-        this.matches = new HashMap<>();
+        this.partner = new int[0];
     }
 
     /**
      * Stores all matchings resulting from unique matching tree hashes in the left and right trees in this
-     * {@link IdenticalSubtreeMatcher}. After this method was called, the
-     * {@link #match(MergeContext, Artifact, Artifact)} method will return {@link Matchings} between the full trees if
-     * {@link #hasMatched(Artifact, Artifact)} returns {@code true}.
+     * {@link IdenticalSubtreeMatcher}.
      *
      * @param leftRoot
      *         the root of the left tree
      * @param rightRoot
      *         the root of the right tree
+     * @see #matchTrees(TreeSnapshot, TreeSnapshot)
      */
     public void matchTrees(T leftRoot, T rightRoot) {
-        Map<String, T> leftUnique = uniqueHashes(leftRoot);
-        Map<String, T> rightUnique = uniqueHashes(rightRoot);
-        matchSubtree(leftUnique.keySet(), leftRoot, rightUnique);
+        TreeSnapshot.Labels<T> labels = new TreeSnapshot.Labels<>();
+        matchTrees(new TreeSnapshot<>(leftRoot, labels), new TreeSnapshot<>(rightRoot, labels));
     }
 
     /**
-     * If the tree hash of {@code left} is unique in the left tree, examines the unique hashes of the right tree and
-     * tries to find the hash of {@code left}. If found, adds matchings between all nodes in the {@code left} and
-     * matching right tree to {@link #matches}. Otherwise all other nodes in the {@code left} tree are examined in DFS
-     * order.
+     * Stores all matchings resulting from unique matching tree hashes in the left and right trees in this
+     * {@link IdenticalSubtreeMatcher}. After this method was called, the
+     * {@link #match(MergeContext, Artifact, Artifact)} method will return {@link Matchings} between the full trees if
+     * {@link #hasMatched(Artifact, Artifact)} returns {@code true}.
+     * <p>
+     * The left snapshot is traversed in pre-order. If the tree hash of a node is unique in the left tree and the
+     * right tree contains a unique node with the same hash, the two subtrees are matched node by node and the rest of
+     * the left subtree is skipped. The same does not happen if the subtrees only appear to be identical because of a
+     * hash collision.
      *
-     * @param leftUnique
-     *         the unique hashes in the left tree
      * @param left
-     *         the node from the left tree to be examined
-     * @param rightUnique
-     *         the unique hashes in the right tree and their corresponding nodes
+     *         the snapshot of the left tree
+     * @param right
+     *         the snapshot of the right tree
      */
-    private void matchSubtree(Set<String> leftUnique, T left, Map<String, T> rightUnique) {
-        String treeHash = left.getTreeHash();
+    public void matchTrees(TreeSnapshot<T> left, TreeSnapshot<T> right) {
+        Map<TreeHash, Integer> leftUnique = uniqueHashes(left);
+        Map<TreeHash, Integer> rightUnique = uniqueHashes(right);
+        int[] partner = new int[left.size()];
 
-        if (!leftUnique.contains(treeHash) || !rightUnique.containsKey(treeHash)) {
-            left.getChildren().forEach(c -> matchSubtree(leftUnique, c, rightUnique));
-            return;
-        }
+        Arrays.fill(partner, -1);
 
-        T right = rightUnique.get(treeHash);
+        for (int l = 0; l < left.size(); ) {
+            TreeHash treeHash = left.hash(l);
+            Integer r = leftUnique.containsKey(treeHash) ? rightUnique.get(treeHash) : null;
 
-        Iterator<T> leftIt = Artifacts.dfsIterable(left).iterator();
-        Iterator<T> rightIt = Artifacts.dfsIterable(right).iterator();
+            if (r != null && !Artifacts.identicalTrees(left.node(l), right.node(r))) {
+                String lId = left.node(l).getId();
+                String rId = right.node(r).getId();
 
-        while (leftIt.hasNext() && rightIt.hasNext()) {
-            matches.put(leftIt.next(), rightIt.next());
+                LOG.warning(() -> String.format("Tree hash collision between %s and %s.", lId, rId));
+                r = null;
+            }
+
+            if (r == null) {
+                l++;
+                continue;
+            }
+
+            for (int offset = 0; offset < left.subtreeSize(l); offset++) {
+                partner[l + offset] = r + offset;
+            }
+
+            l = left.end(l);
         }
+
+        this.left = left;
+        this.right = right;
+        this.partner = partner;
     }
 
     /**
      * Returns the subtree hashes that are unique in the given tree.
      *
-     * @param treeRoot
-     *         the root of the tree to examine
-     * @return the unique hashes in the given tree and their corresponding nodes
+     * @param tree
+     *         the snapshot of the tree to examine
+     * @return the unique hashes in the given tree and the indices of their corresponding nodes
      */
-    private Map<String, T> uniqueHashes(T treeRoot) {
-        Map<String, T> hashes = new HashMap<>();
-        Set<String> notUnique = new HashSet<>();
+    private Map<TreeHash, Integer> uniqueHashes(TreeSnapshot<T> tree) {
+        Map<TreeHash, Integer> hashes = new HashMap<>();
+        Set<TreeHash> notUnique = new HashSet<>();
 
-        Artifacts.dfsStream(treeRoot).forEach(artifact -> {
-            String treeHash = artifact.getTreeHash();
+        for (int i = 0; i < tree.size(); i++) {
+            TreeHash treeHash = tree.hash(i);
 
-            if (hashes.put(treeHash, artifact) != null) {
+            if (hashes.put(treeHash, i) != null) {
                 notUnique.add(treeHash);
             }
-        });
+        }
 
         notUnique.forEach(hashes::remove);
         return hashes;
@@ -136,11 +170,68 @@ public class IdenticalSubtreeMatcher<T extends Artifact<T>> implements MatcherIn
      *         the left {@link Artifact}
      * @param right
      *         the right {@link Artifact}
-     * @return true, iff a previous call to {@link #matchTrees(Artifact, Artifact)} resulted in matching {@code left}
-     * and {@code right}
+     * @return true, iff a previous call to {@link #matchTrees(TreeSnapshot, TreeSnapshot)} resulted in matching
+     * {@code left} and {@code right}
      */
     public boolean hasMatched(T left, T right) {
-        return matches.get(left) == right;
+
+        if (this.left == null) {
+            return false;
+        }
+
+        int l = this.left.indexOf(left);
+
+        return l != -1 && partner[l] != -1 && this.right.node(partner[l]) == right;
+    }
+
+    /**
+     * Returns the pairs of subtrees of {@code left} and {@code right} this {@link IdenticalSubtreeMatcher} has matched
+     * with each other. Which subtrees are matched depends on the hashes that are unique in the whole trees. The
+     * {@link Matchings} computed for {@code left} and {@code right} depend on nothing else outside of the two subtrees.
+     *
+     * @param left
+     *         the root of a subtree of the left tree
+     * @param right
+     *         the root of a subtree of the right tree
+     * @return for the i-th pair of matched subtrees, the elements {@code 2 * i} and {@code 2 * i + 1} are the
+     * depth-first indices of their roots relative to {@code left} and {@code right}
+     */
+    public int[] anchors(T left, T right) {
+
+        if (this.left == null) {
+            return new int[0];
+        }
+
+        int l = this.left.indexOf(left);
+        int r = this.right.indexOf(right);
+
+        if (l == -1 || r == -1) {
+            return new int[0];
+        }
+
+        int lEnd = this.left.end(l);
+        int rEnd = this.right.end(r);
+        int[] anchors = new int[8];
+        int size = 0;
+
+        for (int i = l; i < lEnd; ) {
+            int p = partner[i];
+
+            if (p < r || p >= rEnd) { // unmatched or matched outside of the right subtree
+                i++;
+                continue;
+            }
+
+            if (size == anchors.length) {
+                anchors = Arrays.copyOf(anchors, 2 * size);
+            }
+
+            anchors[size++] = i - l;
+            anchors[size++] = p - r;
+            i = this.left.end(i);
+        }
+
+        return Arrays.copyOf(anchors, size);
     }
 
     @Override
@@ -148,7 +239,7 @@ public class IdenticalSubtreeMatcher<T extends Artifact<T>> implements MatcherIn
         Matchings<T> matchings = new Matchings<>();
 
         if (hasMatched(left, right)) {
-            constructMatchings(matchings, left);
+            constructMatchings(matchings, this.left.indexOf(left));
             return matchings;
         }
 
@@ -156,27 +247,23 @@ public class IdenticalSubtreeMatcher<T extends Artifact<T>> implements MatcherIn
     }
 
     /**
-     * Adds {@link Matching matchings} between the subtrees rooted in {@code left} and its match in {@link #matches} to
-     * the given {@code matchings}.
+     * Adds {@link Matching matchings} between the nodes of the subtree rooted in the left node <code>l</code> and
+     * their partners to the given {@code matchings}. The score of every {@link Matching} is the size of the matched
+     * subtrees.
      *
      * @param matchings
      *         the {@link Matchings} to add to
-     * @param left
-     *         the root of the left tree that was matched
-     * @return the score of the {@link Matching} added for {@code left}
+     * @param l
+     *         the index of the root of the left subtree that was matched
      */
-    private int constructMatchings(Matchings<T> matchings, T left) {
-        int score = 1;
-
-        if (left.hasChildren()) {
-            score += left.getChildren().stream().mapToInt(c -> constructMatchings(matchings, c)).sum();
-        }
-
-        Matching<T> matching = new Matching<>(left, matches.get(left), score);
+    private void constructMatchings(Matchings<T> matchings, int l) {
+        String algorithm = IdenticalSubtreeMatcher.class.getSimpleName();
 
-        matching.setAlgorithm(IdenticalSubtreeMatcher.class.getSimpleName());
-        matchings.add(matching);
+        for (int i = left.end(l) - 1; i >= l; i--) {
+            Matching<T> matching = new Matching<>(left.node(i), right.node(partner[i]), left.subtreeSize(i));
 
-        return score;
+            matching.setAlgorithm(algorithm);
+            matchings.add(matching);
+        }
     }
 }
@@ -30,6 +30,7 @@ import java.lang.reflect.Array;
 
 import de.fosd.jdime.artifact.Artifact;
 import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.ChildPairMatcher;
 import de.fosd.jdime.matcher.MatcherInterface;
 import de.fosd.jdime.matcher.matching.Matching;
 import de.fosd.jdime.matcher.matching.Matchings;
@@ -83,11 +84,7 @@ public abstract class AssignmentProblemMatcher<T extends Artifact<T>> extends Un
         @SuppressWarnings("unchecked")
         Tuple<Integer, Matchings<T>>[][] matchings = (Tuple<Integer, Matchings<T>>[][]) Array.newInstance(Tuple.class, m, n);
 
-        for (int i = 0; i < m; i++) {
-            for (int j = 0; j < n; j++) {
-                matchings[i][j] = Tuple.of(0, new Matchings<>());
-            }
-        }
+        Matchings<T>[][] childMatchings = ChildPairMatcher.matchChildren(context, matcher, left, right);
 
         T childT1;
         T childT2;
@@ -96,7 +93,7 @@ public abstract class AssignmentProblemMatcher<T extends Artifact<T>> extends Un
             childT1 = left.getChild(i);
             for (int j = 0; j < n; j++) {
                 childT2 = right.getChild(j);
-                Matchings<T> w = matcher.match(context, childT1, childT2);
+                Matchings<T> w = childMatchings[i][j];
                 Matching<T> matching = w.get(childT1, childT2).get();
                 matchings[i][j] = Tuple.of(matching.getScore(), w);
             }
@@ -0,0 +1,66 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.matcher.MatcherInterface;
+
+/**
+ * The available solvers for the assignment problems arising when matching unordered children.
+ */
+public enum AssignmentSolver {
+    /**
+     * The {@link HungarianMatcher} using the {@link HungarianAlgorithm}.
+     */
+    HUNGARIAN {
+        @Override
+        public <T extends Artifact<T>> AssignmentProblemMatcher<T> create(MatcherInterface<T> matcher) {
+            return new HungarianMatcher<>(matcher);
+        }
+    },
+
+    /**
+     * The {@link JonkerVolgenantMatcher} using the {@link JonkerVolgenantAlgorithm}.
+     */
+    LAPJV {
+        @Override
+        public <T extends Artifact<T>> AssignmentProblemMatcher<T> create(MatcherInterface<T> matcher) {
+            return new JonkerVolgenantMatcher<>(matcher);
+        }
+    };
+
+    /**
+     * Constructs the <code>AssignmentProblemMatcher</code> using this solver.
+     *
+     * @param matcher
+     *         the parent <code>MatcherInterface</code> used for recursive calls
+     * @param <T>
+     *         type of artifact
+     * @return the new <code>AssignmentProblemMatcher</code>
+     */
+    public abstract <T extends Artifact<T>> AssignmentProblemMatcher<T> create(MatcherInterface<T> matcher);
+}
@@ -0,0 +1,236 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import java.util.Arrays;
+
+/**
+ * A shortest augmenting path solver for the (rectangular) linear assignment problem in the style of Jonker and
+ * Volgenant. Given a cost matrix with <code>rows</code> rows and <code>cols</code> columns, it finds an assignment
+ * of rows to columns of minimal total cost in which <code>min(rows, cols)</code> pairs are assigned.
+ * <p>
+ * In contrast to the {@link HungarianAlgorithm}, the cost matrix is a flat row-major primitive array, rectangular
+ * matrices are solved without padding them to a square one and all working memory is kept in per-thread scratch
+ * buffers that only grow. An instance is obtained using {@link #get()} and must only be used by the thread that
+ * obtained it. The solver runs in time O(k^2 * l) where k is the smaller and l the larger dimension.
+ */
+public final class JonkerVolgenantAlgorithm {
+
+    private static final ThreadLocal<JonkerVolgenantAlgorithm> INSTANCES =
+            ThreadLocal.withInitial(JonkerVolgenantAlgorithm::new);
+
+    private int[] cost = new int[0];
+    private int[] assignment = new int[0];
+
+    private int[] rowPotential = new int[1];
+    private int[] colPotential = new int[1];
+    private int[] rowByCol = new int[1];
+    private int[] predecessor = new int[1];
+    private int[] minSlack = new int[1];
+    private boolean[] visited = new boolean[1];
+
+    private JonkerVolgenantAlgorithm() {
+        // use get()
+    }
+
+    /**
+     * Returns the <code>JonkerVolgenantAlgorithm</code> of the current thread.
+     *
+     * @return the instance for the current thread
+     */
+    public static JonkerVolgenantAlgorithm get() {
+        return INSTANCES.get();
+    }
+
+    /**
+     * Returns the scratch buffer to store a row-major cost matrix of the given dimensions in. The cost of assigning
+     * row <code>i</code> to column <code>j</code> is expected at index <code>i * cols + j</code>. The buffer may be
+     * larger than needed and contain stale values, it is overwritten by subsequent calls to this method.
+     *
+     * @param rows
+     *         the number of rows
+     * @param cols
+     *         the number of columns
+     * @return the cost buffer
+     */
+    public int[] costMatrix(int rows, int cols) {
+        int size = rows * cols;
+
+        if (cost.length < size) {
+            cost = new int[size];
+        }
+
+        return cost;
+    }
+
+    /**
+     * Solves the assignment problem for the costs stored in the buffer returned by
+     * {@link #costMatrix(int, int)}. The result contains for every row the index of the column it was assigned to
+     * or -1 if it was not assigned. The returned array is a scratch buffer that is only valid until the next call
+     * of this method, only its first <code>rows</code> entries are meaningful.
+     *
+     * @param rows
+     *         the number of rows
+     * @param cols
+     *         the number of columns
+     * @return the column assigned to each row
+     */
+    public int[] execute(int rows, int cols) {
+
+        if (assignment.length < rows) {
+            assignment = new int[rows];
+        }
+
+        Arrays.fill(assignment, 0, rows, -1);
+
+        if (rows == 0 || cols == 0) {
+            return assignment;
+        }
+
+        if (rows <= cols) {
+            solve(rows, cols, cols, 1);
+
+            for (int j = 1; j <= cols; j++) {
+                if (rowByCol[j] != 0) {
+                    assignment[rowByCol[j] - 1] = j - 1;
+                }
+            }
+        } else {
+            // solve the transposed problem by swapping the strides, the columns then act as rows
+            solve(cols, rows, 1, cols);
+
+            for (int i = 1; i <= rows; i++) {
+                if (rowByCol[i] != 0) {
+                    assignment[i - 1] = rowByCol[i] - 1;
+                }
+            }
+        }
+
+        return assignment;
+    }
+
+    /**
+     * Assigns each of the <code>n</code> rows to one of the <code>m &gt;= n</code> columns by successively
+     * augmenting along shortest paths with respect to the reduced costs. The cost of row <code>i</code> and column
+     * <code>j</code> (both zero based) is found at <code>cost[i * rowStride + j * colStride]</code>. Afterwards
+     * {@link #rowByCol} contains the one based row assigned to each one based column or 0.
+     *
+     * @param n
+     *         the number of rows
+     * @param m
+     *         the number of columns
+     * @param rowStride
+     *         the distance between rows in the cost buffer
+     * @param colStride
+     *         the distance between columns in the cost buffer
+     */
+    private void solve(int n, int m, int rowStride, int colStride) {
+        ensureCapacity(n, m);
+
+        Arrays.fill(rowPotential, 0, n + 1, 0);
+        Arrays.fill(colPotential, 0, m + 1, 0);
+        Arrays.fill(rowByCol, 0, m + 1, 0);
+
+        // column 0 is a virtual column holding the row that is currently being assigned
+        for (int row = 1; row <= n; row++) {
+            rowByCol[0] = row;
+            int col0 = 0;
+
+            Arrays.fill(minSlack, 0, m + 1, Integer.MAX_VALUE);
+            Arrays.fill(visited, 0, m + 1, false);
+
+            do {
+                visited[col0] = true;
+
+                int row0 = rowByCol[col0];
+                int base = (row0 - 1) * rowStride;
+                int delta = Integer.MAX_VALUE;
+                int col1 = 0;
+
+                for (int j = 1; j <= m; j++) {
+
+                    if (visited[j]) {
+                        continue;
+                    }
+
+                    int reduced = cost[base + (j - 1) * colStride] - rowPotential[row0] - colPotential[j];
+
+                    if (reduced < minSlack[j]) {
+                        minSlack[j] = reduced;
+                        predecessor[j] = col0;
+                    }
+
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        col1 = j;
+                    }
+                }
+
+                for (int j = 0; j <= m; j++) {
+                    if (visited[j]) {
+                        rowPotential[rowByCol[j]] += delta;
+                        colPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+
+                col0 = col1;
+            } while (rowByCol[col0] != 0);
+
+            // augment along the alternating path ending in the free column col0
+            do {
+                int col1 = predecessor[col0];
+                rowByCol[col0] = rowByCol[col1];
+                col0 = col1;
+            } while (col0 != 0);
+        }
+    }
+
+    /**
+     * Grows the scratch buffers to accommodate a problem with <code>n</code> rows and <code>m</code> columns.
+     *
+     * @param n
+     *         the number of rows
+     * @param m
+     *         the number of columns
+     */
+    private void ensureCapacity(int n, int m) {
+
+        if (rowPotential.length < n + 1) {
+            rowPotential = new int[n + 1];
+        }
+
+        if (colPotential.length < m + 1) {
+            colPotential = new int[m + 1];
+            rowByCol = new int[m + 1];
+            predecessor = new int[m + 1];
+            minSlack = new int[m + 1];
+            visited = new boolean[m + 1];
+        }
+    }
+}
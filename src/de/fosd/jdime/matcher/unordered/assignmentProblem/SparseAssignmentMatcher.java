@@ -0,0 +1,258 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.unordered.assignmentProblem;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fosd.jdime.artifact.Artifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.matcher.MatcherInterface;
+import de.fosd.jdime.matcher.matching.Matching;
+import de.fosd.jdime.matcher.matching.Matchings;
+import de.fosd.jdime.matcher.unordered.UnorderedMatcher;
+import de.fosd.jdime.util.Tuple;
+
+import static de.fosd.jdime.config.merge.MergeContext.LOOKAHEAD_OFF;
+
+/**
+ * <code>UnorderedMatcher</code> that solves the same assignment problem as the {@link AssignmentProblemMatcher} but
+ * only considers child pairs that may have a positive score.
+ * <p>
+ * Two children can only receive a positive score from the recursive matcher if they match (see
+ * {@link Artifact#matches(Artifact)}) unless one of them is a choice or conflict node or lookahead is enabled for
+ * its type. The children are therefore grouped by their {@link Artifact#getMatchingKey() matching keys} and the
+ * assignment problem is solved separately for every group by the given {@link AssignmentProblemMatcher}. If there
+ * are children that may match a child of another group, a single assignment problem is solved in which only the
+ * candidate pairs are passed to the recursive matcher.
+ *
+ * @param <T>
+ *         type of artifact
+ */
+public class SparseAssignmentMatcher<T extends Artifact<T>> extends UnorderedMatcher<T> {
+
+    private static final String ID = SparseAssignmentMatcher.class.getSimpleName();
+
+    private final AssignmentProblemMatcher<T> solver;
+
+    /**
+     * Constructs a new <code>SparseAssignmentMatcher</code> using the given <code>matcher</code> for recursive calls.
+     *
+     * @param matcher
+     *         the parent <code>MatcherInterface</code>
+     * @param solver
+     *         the <code>AssignmentProblemMatcher</code> used to solve the assignment problems of the groups
+     */
+    public SparseAssignmentMatcher(MatcherInterface<T> matcher, AssignmentProblemMatcher<T> solver) {
+        super(matcher);
+        this.solver = solver;
+    }
+
+    @Override
+    public Matchings<T> match(MergeContext context, T left, T right) {
+        int rootMatching = left.matches(right) ? 1 : 0;
+
+        // number of first-level subtrees of t1
+        int m = left.getNumChildren();
+
+        // number of first-level subtrees of t2
+        int n = right.getNumChildren();
+
+        if (m == 0 || n == 0) {
+            Matchings<T> matchings = Matchings.of(left, right, rootMatching);
+            matchings.get(left, right).get().setAlgorithm(ID);
+
+            return matchings;
+        }
+
+        String[] leftKeys = new String[m];
+        String[] rightKeys = new String[n];
+        Map<String, List<Integer>> leftGroups = new LinkedHashMap<>();
+        Map<String, List<Integer>> rightGroups = new LinkedHashMap<>();
+
+        boolean wildcards = group(context, left, leftKeys, leftGroups);
+        wildcards |= group(context, right, rightKeys, rightGroups);
+
+        Matchings<T> result = new Matchings<>();
+        int score = 0;
+
+        if (wildcards) {
+            score = solve(context, left, right, range(m), range(n), leftKeys, rightKeys, result);
+        } else {
+            for (Map.Entry<String, List<Integer>> group : leftGroups.entrySet()) {
+                List<Integer> rightGroup = rightGroups.get(group.getKey());
+
+                if (rightGroup != null) {
+                    score += solve(context, left, right, group.getValue(), rightGroup, leftKeys, rightKeys, result);
+                }
+            }
+        }
+
+        Matching<T> matching = new Matching<>(left, right, score + rootMatching);
+        matching.setAlgorithm(ID);
+        result.add(matching);
+
+        return result;
+    }
+
+    /**
+     * Groups the children of <code>parent</code> by their matching keys. Children that may match children with
+     * other keys are not grouped and receive a <code>null</code> key.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param parent
+     *         the parent whose children are to be grouped
+     * @param keys
+     *         the array to store the key of every child in
+     * @param groups
+     *         the map to store the indices of the children of every group in
+     * @return whether there are children that were not grouped
+     */
+    private boolean group(MergeContext context, T parent, String[] keys, Map<String, List<Integer>> groups) {
+        boolean wildcards = false;
+
+        for (int i = 0; i < keys.length; i++) {
+            T child = parent.getChild(i);
+
+            if (child.isChoice() || child.isConflict()
+                    || (context.isLookAhead() && context.getLookahead(child.getType()) != LOOKAHEAD_OFF)) {
+                wildcards = true;
+            } else {
+                keys[i] = child.getMatchingKey();
+                groups.computeIfAbsent(keys[i], k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        return wildcards;
+    }
+
+    /**
+     * Solves the assignment problem for the given children of <code>left</code> and <code>right</code> and adds
+     * the <code>Matchings</code> of the assigned pairs to <code>result</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the merge
+     * @param left
+     *         the left parent
+     * @param right
+     *         the right parent
+     * @param rows
+     *         the indices of the left children to consider
+     * @param cols
+     *         the indices of the right children to consider
+     * @param leftKeys
+     *         the matching keys of the left children
+     * @param rightKeys
+     *         the matching keys of the right children
+     * @param result
+     *         the <code>Matchings</code> to add the <code>Matchings</code> of the assigned pairs to
+     * @return the sum of the scores of the assigned pairs
+     */
+    private int solve(MergeContext context, T left, T right, List<Integer> rows, List<Integer> cols,
+                      String[] leftKeys, String[] rightKeys, Matchings<T> result) {
+
+        if (rows.size() == 1 && cols.size() == 1) {
+            T leftChild = left.getChild(rows.get(0));
+            T rightChild = right.getChild(cols.get(0));
+
+            Matchings<T> w = matcher.match(context, leftChild, rightChild);
+            int score = w.get(leftChild, rightChild).get().getScore();
+
+            if (score > 0) {
+                result.addAll(w);
+            }
+
+            return score;
+        }
+
+        Tuple<Integer, Matchings<T>> noCandidate = Tuple.of(0, new Matchings<>());
+
+        @SuppressWarnings("unchecked")
+        Tuple<Integer, Matchings<T>>[][] matchings = (Tuple<Integer, Matchings<T>>[][]) Array.newInstance(Tuple.class, rows.size(), cols.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            T leftChild = left.getChild(row);
+
+            for (int j = 0; j < cols.size(); j++) {
+                int col = cols.get(j);
+
+                if (!candidates(leftKeys[row], rightKeys[col])) {
+                    matchings[i][j] = noCandidate;
+                    continue;
+                }
+
+                T rightChild = right.getChild(col);
+                Matchings<T> w = matcher.match(context, leftChild, rightChild);
+                Matching<T> matching = w.get(leftChild, rightChild).get();
+                matchings[i][j] = Tuple.of(matching.getScore(), w);
+            }
+        }
+
+        Matchings<T> solved = solver.solveAssignmentProblem(left, right, matchings, 0);
+        Matching<T> root = solved.get(left, right).get();
+
+        solved.remove(root);
+        result.addAll(solved);
+
+        return root.getScore();
+    }
+
+    /**
+     * Returns whether two children with the given matching keys may receive a positive score.
+     *
+     * @param leftKey
+     *         the key of the left child or <code>null</code> if it was not grouped
+     * @param rightKey
+     *         the key of the right child or <code>null</code> if it was not grouped
+     * @return whether the children have to be passed to the recursive matcher
+     */
+    private static boolean candidates(String leftKey, String rightKey) {
+        return leftKey == null || rightKey == null || leftKey.equals(rightKey);
+    }
+
+    /**
+     * Returns a <code>List</code> of the indices <code>0</code> to <code>size - 1</code>.
+     *
+     * @param size
+     *         the number of indices
+     * @return the indices
+     */
+    private static List<Integer> range(int size) {
+        List<Integer> range = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            range.add(i);
+        }
+
+        return range;
+    }
+}
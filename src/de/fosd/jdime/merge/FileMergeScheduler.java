@@ -0,0 +1,194 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.merge;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.operations.MergeOperation;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import de.fosd.jdime.stats.Statistics;
+
+import static de.fosd.jdime.stats.MergeScenarioStatus.OK;
+
+/**
+ * Merges the Java files of a directory merge in parallel. While {@link Merge} walks the directories, the
+ * <code>MergeOperation</code>s of the files are only {@link #schedule(MergeOperation) scheduled}. {@link #run()} then
+ * performs them in a work-stealing {@link ForkJoinPool}. The files are submitted largest first, the summed size of the
+ * input files serves as the estimate of the cost of a merge. The expensive merges therefore do not end up last on a
+ * single thread.
+ * <p>
+ * Every file is merged using its own copy of the <code>MergeContext</code> so that the per-file state stored in it is
+ * not shared between threads. The statistics and crashes of a file are added to the original
+ * <code>MergeContext</code> after its merge. The merge results are stored in the target <code>FileArtifact</code>s
+ * of the already built target tree and written only after all merges are done, the output is therefore identical to
+ * the one of a sequential merge.
+ * <p>
+ * ExtendJ keeps the state of attribute evaluation in a single static object. Everything that evaluates attributes,
+ * including adding a freshly parsed <code>CompilationUnit</code> to its <code>Program</code>, therefore holds
+ * <code>ASTNodeArtifact.EXTENDJ_LOCK</code>. Lexing, parsing, matching and merging the trees run concurrently.
+ */
+public final class FileMergeScheduler {
+
+    private static final Logger LOG = Logger.getLogger(FileMergeScheduler.class.getCanonicalName());
+
+    private final MergeContext context;
+    private final List<MergeOperation<FileArtifact>> operations;
+
+    /**
+     * Constructs a new <code>FileMergeScheduler</code> merging files using copies of the given
+     * <code>MergeContext</code>.
+     *
+     * @param context
+     *         the <code>MergeContext</code> of the directory merge
+     */
+    public FileMergeScheduler(MergeContext context) {
+        this.context = context;
+        this.operations = new ArrayList<>();
+    }
+
+    /**
+     * Schedules the given <code>MergeOperation</code> of a Java file to be performed by {@link #run()}.
+     *
+     * @param operation
+     *         the <code>MergeOperation</code> to schedule
+     */
+    public void schedule(MergeOperation<FileArtifact> operation) {
+        operations.add(operation);
+    }
+
+    /**
+     * Performs all scheduled <code>MergeOperation</code>s and waits for them to finish. If a merge throws an
+     * exception (e.g. an {@link de.fosd.jdime.execption.AbortException}), the remaining merges are cancelled and the
+     * exception is rethrown.
+     */
+    public void run() {
+        List<MergeOperation<FileArtifact>> byCost = new ArrayList<>(operations);
+        byCost.sort(Comparator.comparingLong(FileMergeScheduler::cost).reversed());
+
+        MergeContext template = new MergeContext(context);
+
+        template.getCrashes().clear();
+        template.getStatistics().getScenarioStatistics()
+                .forEach(s -> template.getStatistics().removeScenarioStatistics(s.getMergeScenario()));
+
+        int threads = context.getDirectoryMergeThreads();
+
+        if (threads < 1) {
+            threads = java.lang.Runtime.getRuntime().availableProcessors();
+        }
+
+        int numThreads = threads;
+        LOG.fine(() -> String.format("Merging %d files using %d threads.", byCost.size(), numThreads));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(byCost.size());
+
+        try {
+            for (MergeOperation<FileArtifact> operation : byCost) {
+                tasks.add(pool.submit(() -> merge(operation, new MergeContext(template))));
+            }
+
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    tasks.forEach(t -> t.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    tasks.forEach(t -> t.cancel(true));
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Applies the given file <code>MergeOperation</code> using <code>fileContext</code> and adds the statistics and
+     * crash it produced to the <code>MergeContext</code> of the directory merge. The statistics are added to those
+     * {@link MergeOperation#apply(MergeContext)} already recorded for the scenario when it was scheduled.
+     *
+     * @param operation
+     *         the <code>MergeOperation</code> to apply
+     * @param fileContext
+     *         the <code>MergeContext</code> to use for the file
+     */
+    private void merge(MergeOperation<FileArtifact> operation, MergeContext fileContext) {
+        MergeScenario<FileArtifact> scenario = operation.getMergeScenario();
+
+        try {
+            scenario.getLeft().merge(operation, fileContext);
+        } finally {
+            Throwable crash = fileContext.getCrashes().get(scenario);
+
+            if (crash != null) {
+                context.addCrash(scenario, crash);
+            }
+
+            if (context.hasStatistics() && fileContext.getStatistics().containsStatistics(scenario)) {
+                MergeScenarioStatistics fileStatistics = fileContext.getStatistics().getScenarioStatistics(scenario);
+                Statistics statistics = context.getStatistics();
+
+                statistics.addScenarioStatistics(fileStatistics);
+
+                if (fileStatistics.getStatus() != OK) {
+                    statistics.getScenarioStatistics(scenario).setStatus(fileStatistics.getStatus());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated cost of the given <code>MergeOperation</code>, that is the summed size of its input files.
+     *
+     * @param operation
+     *         the <code>MergeOperation</code> to estimate
+     * @return the estimated cost
+     */
+    private static long cost(MergeOperation<FileArtifact> operation) {
+        return operation.getMergeScenario().asList().stream().mapToLong(f -> f.getFile().length()).sum();
+    }
+}
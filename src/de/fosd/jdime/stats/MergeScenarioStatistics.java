@@ -58,6 +58,10 @@ public class MergeScenarioStatistics {
     private ElementStatistics fileStatistics;
     private ElementStatistics directoryStatistics;
     private int conflicts;
+    private int parseCacheHits;
+    private int parseCacheMisses;
+    private int matchingMemoHits;
+    private int matchingMemoMisses;
 
     private Map<String, Runtime> runtimes;
 
@@ -78,6 +82,10 @@ public class MergeScenarioStatistics {
         this.fileStatistics = new ElementStatistics();
         this.directoryStatistics = new ElementStatistics();
         this.conflicts = 0;
+        this.parseCacheHits = 0;
+        this.parseCacheMisses = 0;
+        this.matchingMemoHits = 0;
+        this.matchingMemoMisses = 0;
         this.runtimes = new HashMap<>();
     }
 
@@ -131,6 +139,10 @@ public class MergeScenarioStatistics {
         this.fileStatistics = new ElementStatistics(toCopy.fileStatistics);
         this.directoryStatistics = new ElementStatistics(toCopy.directoryStatistics);
         this.conflicts = toCopy.conflicts;
+        this.parseCacheHits = toCopy.parseCacheHits;
+        this.parseCacheMisses = toCopy.parseCacheMisses;
+        this.matchingMemoHits = toCopy.matchingMemoHits;
+        this.matchingMemoMisses = toCopy.matchingMemoMisses;
 
         this.runtimes = new HashMap<>(toCopy.runtimes.size());
 
@@ -370,6 +382,73 @@ public class MergeScenarioStatistics {
         return conflicts;
     }
 
+    /**
+     * Returns the number of files whose AST was found in the {@link de.fosd.jdime.artifact.ast.ParseCache}.
+     *
+     * @return the number of parse cache hits
+     */
+    public int getParseCacheHits() {
+        return parseCacheHits;
+    }
+
+    /**
+     * Increments the number of parse cache hits.
+     */
+    public synchronized void incrementParseCacheHits() {
+        parseCacheHits++;
+    }
+
+    /**
+     * Returns the number of files that had to be parsed because their AST was not found in the
+     * {@link de.fosd.jdime.artifact.ast.ParseCache}.
+     *
+     * @return the number of parse cache misses
+     */
+    public int getParseCacheMisses() {
+        return parseCacheMisses;
+    }
+
+    /**
+     * Increments the number of parse cache misses.
+     */
+    public synchronized void incrementParseCacheMisses() {
+        parseCacheMisses++;
+    }
+
+    /**
+     * Returns the number of pairs of subtrees whose <code>Matchings</code> were found in the
+     * {@link de.fosd.jdime.matcher.MatchingMemo}.
+     *
+     * @return the number of matching memo hits
+     */
+    public int getMatchingMemoHits() {
+        return matchingMemoHits;
+    }
+
+    /**
+     * Increments the number of matching memo hits.
+     */
+    public synchronized void incrementMatchingMemoHits() {
+        matchingMemoHits++;
+    }
+
+    /**
+     * Returns the number of pairs of subtrees whose <code>Matchings</code> had to be computed because they were not
+     * found in the {@link de.fosd.jdime.matcher.MatchingMemo}.
+     *
+     * @return the number of matching memo misses
+     */
+    public int getMatchingMemoMisses() {
+        return matchingMemoMisses;
+    }
+
+    /**
+     * Increments the number of matching memo misses.
+     */
+    public synchronized void incrementMatchingMemoMisses() {
+        matchingMemoMisses++;
+    }
+
     /**
      * Returns the {@link Runtime} for the given {@code label}. A new {@link Runtime} will be created an stored in this
      * {@link MergeScenarioStatistics} is necessary.
@@ -443,6 +522,10 @@ public class MergeScenarioStatistics {
         fileStatistics.add(other.fileStatistics);
         directoryStatistics.add(other.directoryStatistics);
         conflicts += other.conflicts;
+        parseCacheHits += other.parseCacheHits;
+        parseCacheMisses += other.parseCacheMisses;
+        matchingMemoHits += other.matchingMemoHits;
+        matchingMemoMisses += other.matchingMemoMisses;
 
         for (Map.Entry<String, Runtime> entry : other.runtimes.entrySet()) {
             getRuntime(entry.getKey()).add(entry.getValue());
@@ -464,9 +547,21 @@ public class MergeScenarioStatistics {
         os.println("General:");
         os.printf("%sConflicts: %s%n", indent, conflicts);
 
-        runtimes.forEach((label, runtime) ->
-                os.printf("%sRuntime (%s): %dms%n", indent, label, runtime.getTimeMS())
-        );
+        if (parseCacheHits + parseCacheMisses > 0) {
+            os.printf("%sParse Cache: %d hits, %d misses%n", indent, parseCacheHits, parseCacheMisses);
+        }
+
+        if (matchingMemoHits + matchingMemoMisses > 0) {
+            os.printf("%sMatching Memo: %d hits, %d misses%n", indent, matchingMemoHits, matchingMemoMisses);
+        }
+
+        runtimes.forEach((label, runtime) -> {
+            if (runtime.getIterations() > 0) {
+                os.printf("%sRuntime (%s): %dms, %d iterations%n", indent, label, runtime.getTimeMS(), runtime.getIterations());
+            } else {
+                os.printf("%sRuntime (%s): %dms%n", indent, label, runtime.getTimeMS());
+            }
+        });
 
         if (!matchings.isEmpty()) os.println("Matchings");
         matchings.stream().sorted().forEachOrdered(matching ->
@@ -38,6 +38,18 @@ public final class Runtime {
      */
     public static final String MERGE_LABEL = "merge";
 
+    /**
+     * The label to be used for the {@link Runtime} measuring the time spent in the cost model matcher. Its
+     * {@link #getIterations()} are the number of iterations the cost model search ran for.
+     */
+    public static final String COST_MODEL_LABEL = "costmodel";
+
+    /**
+     * The label to be used for the {@link Runtime} measuring the time it took to scan the input files and directories
+     * and to build their {@link de.fosd.jdime.artifact.file.FileArtifact} trees.
+     */
+    public static final String SCAN_LABEL = "scan";
+
     /**
      * This value indicates that no runtime has been stored in a {@link Runtime}.
      */
@@ -84,6 +96,7 @@ public final class Runtime {
 
     private final String label;
     private long timeMS;
+    private long iterations;
 
     /**
      * Constructs a new {@link Runtime} with the given label.
@@ -103,6 +116,7 @@ public final class Runtime {
     public Runtime(Runtime toCopy) {
         this.label = toCopy.label;
         this.timeMS = toCopy.timeMS;
+        this.iterations = toCopy.iterations;
     }
 
     /**
@@ -118,7 +132,7 @@ public final class Runtime {
     /**
      * Adds the given {@link Runtime} to this {@link Runtime}. The 'no measurement' value {@value #NO_MEASUREMENT} will
      * be treated as 0 unless both {@code this} and {@code toAdd} have not been measured yet in which case the result
-     * will be {@value #NO_MEASUREMENT}.
+     * will be {@value #NO_MEASUREMENT}. The iterations of both {@link Runtime Runtimes} are summed up.
      *
      * @param toAdd
      *         the {@link Runtime} to add
@@ -137,6 +151,29 @@ public final class Runtime {
             long r = toAdd.timeMS == NO_MEASUREMENT ? 0 : toAdd.timeMS;
             timeMS = l + r;
         }
+
+        iterations += toAdd.iterations;
+    }
+
+    /**
+     * Adds to the number of iterations performed by an iterative algorithm whose runtime this {@link Runtime}
+     * measures.
+     *
+     * @param iterations
+     *         the number of iterations to add
+     */
+    public void addIterations(long iterations) {
+        this.iterations += iterations;
+    }
+
+    /**
+     * Returns the number of iterations performed by an iterative algorithm whose runtime this {@link Runtime}
+     * measures. This is 0 for {@link Runtime Runtimes} not measuring an iterative algorithm.
+     *
+     * @return the number of iterations
+     */
+    public long getIterations() {
+        return iterations;
     }
 
     /**
@@ -149,10 +186,11 @@ public final class Runtime {
     }
 
     /**
-     * Resets this {@link Runtime} to {@value NO_MEASUREMENT}.
+     * Resets this {@link Runtime} to {@value NO_MEASUREMENT} and zero iterations.
      */
     public void reset() {
         timeMS = NO_MEASUREMENT;
+        iterations = 0;
     }
 
     /**
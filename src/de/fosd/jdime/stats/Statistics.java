@@ -61,7 +61,8 @@ import de.fosd.jdime.matcher.matching.Matching;
 
 /**
  * A collection of <code>MergeScenarioStatistics</code> containing collected statistics about
- * <code>MergeScenario</code>s that were merged during a run of JDime.
+ * <code>MergeScenario</code>s that were merged during a run of JDime. The methods accessing the collection are
+ * synchronized, the files of a directory may be merged by multiple threads.
  */
 public class Statistics {
 
@@ -85,17 +86,20 @@ public class Statistics {
      */
     public Statistics(Statistics toCopy) {
 
-        if (toCopy.currentFileMergeScenario != null) {
-            this.currentFileMergeScenario = new MergeScenario<>(toCopy.currentFileMergeScenario);
-        }
+        synchronized (toCopy) {
 
-        this.scenarioStatistics = new HashMap<>();
+            if (toCopy.currentFileMergeScenario != null) {
+                this.currentFileMergeScenario = new MergeScenario<>(toCopy.currentFileMergeScenario);
+            }
 
-        for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : toCopy.scenarioStatistics.entrySet()) {
-            MergeScenario<?> mScenario = new MergeScenario<>(entry.getKey());
-            MergeScenarioStatistics mStats = new MergeScenarioStatistics(entry.getValue());
+            this.scenarioStatistics = new HashMap<>();
 
-            this.scenarioStatistics.put(mScenario, mStats);
+            for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : toCopy.scenarioStatistics.entrySet()) {
+                MergeScenario<?> mScenario = new MergeScenario<>(entry.getKey());
+                MergeScenarioStatistics mStats = new MergeScenarioStatistics(entry.getValue());
+
+                this.scenarioStatistics.put(mScenario, mStats);
+            }
         }
     }
 
@@ -105,7 +109,7 @@ public class Statistics {
      *
      * @return the <code>MergeScenarioStatistics</code>
      */
-    public MergeScenarioStatistics getCurrentFileMergeScenarioStatistics() {
+    public synchronized MergeScenarioStatistics getCurrentFileMergeScenarioStatistics() {
         return getScenarioStatistics(currentFileMergeScenario);
     }
 
@@ -114,7 +118,7 @@ public class Statistics {
      *
      * @param currentFileMergeScenario the new <code>MergeScenario</code> for <code>FileArtifacts</code>
      */
-    public void setCurrentFileMergeScenario(MergeScenario<FileArtifact> currentFileMergeScenario) {
+    public synchronized void setCurrentFileMergeScenario(MergeScenario<FileArtifact> currentFileMergeScenario) {
         this.currentFileMergeScenario = currentFileMergeScenario;
     }
 
@@ -126,7 +130,7 @@ public class Statistics {
      *         the <code>MergeScenario</code> to check for
      * @return true iff a <code>MergeScenarioStatistics</code> was registered for <code>mergeScenario</code>
      */
-    public boolean containsStatistics(MergeScenario<?> mergeScenario) {
+    public synchronized boolean containsStatistics(MergeScenario<?> mergeScenario) {
         return scenarioStatistics.containsKey(mergeScenario);
     }
 
@@ -138,7 +142,7 @@ public class Statistics {
      *         the <code>MergeScenario</code> to get the <code>MergeScenarioStatistics</code> for
      * @return the <code>MergeScenarioStatistics</code> for the given <code>MergeScenario</code>
      */
-    public MergeScenarioStatistics getScenarioStatistics(MergeScenario<?> mergeScenario) {
+    public synchronized MergeScenarioStatistics getScenarioStatistics(MergeScenario<?> mergeScenario) {
         return scenarioStatistics.computeIfAbsent(mergeScenario, MergeScenarioStatistics::new);
     }
 
@@ -147,7 +151,7 @@ public class Statistics {
      *
      * @return the <code>MergeScenarioStatistics</code>
      */
-    public List<MergeScenarioStatistics> getScenarioStatistics() {
+    public synchronized List<MergeScenarioStatistics> getScenarioStatistics() {
         return scenarioStatistics.values().stream().collect(Collectors.toList());
     }
 
@@ -159,7 +163,7 @@ public class Statistics {
      * @param statistics
      *         the <code>MergeScenarioStatistics</code> to be added
      */
-    public void addScenarioStatistics(MergeScenarioStatistics statistics) {
+    public synchronized void addScenarioStatistics(MergeScenarioStatistics statistics) {
         scenarioStatistics.merge(statistics.getMergeScenario(), statistics, (o, n) -> {o.add(n); return o;});
     }
 
@@ -169,7 +173,7 @@ public class Statistics {
      *
      * @param scenario the <code>MergeScenario</code> whose <code>MergeScenarioStatistics</code> are to be removed.
      */
-    public void removeScenarioStatistics(MergeScenario<?> scenario) {
+    public synchronized void removeScenarioStatistics(MergeScenario<?> scenario) {
         scenarioStatistics.remove(scenario);
     }
 
@@ -179,7 +183,7 @@ public class Statistics {
      *
      * @return the <code>IntSummaryStatistics</code> about conflicts that occurred
      */
-    public IntSummaryStatistics getConflictStatistics() {
+    public synchronized IntSummaryStatistics getConflictStatistics() {
         return scenarioStatistics.values().stream().collect(Collectors.summarizingInt(MergeScenarioStatistics::getConflicts));
     }
 
@@ -188,7 +192,7 @@ public class Statistics {
      *
      * @return true iff any added <code>MergeScenarioStatistics</code> recorded conflicts
      */
-    public boolean hasConflicts() {
+    public synchronized boolean hasConflicts() {
         return scenarioStatistics.values().stream().anyMatch(s -> s.getConflicts() > 0);
     }
 
@@ -201,7 +205,7 @@ public class Statistics {
      *         the <code>Statistics</code> to add to <code>this</code>
      * @see MergeScenarioStatistics#add(MergeScenarioStatistics)
      */
-    public void add(Statistics other) {
+    public synchronized void add(Statistics other) {
         for (Map.Entry<MergeScenario<?>, MergeScenarioStatistics> entry : other.scenarioStatistics.entrySet()) {
             getScenarioStatistics(entry.getKey()).add(entry.getValue());
         }
@@ -237,7 +241,7 @@ public class Statistics {
      * @param os
      *         the <code>OutputStream</code> to write to
      */
-    public void printXML(OutputStream os, MergeContext context) {
+    public synchronized void printXML(OutputStream os, MergeContext context) {
         buildSerializer(context).toXML(this, os);
     }
 
@@ -332,6 +336,7 @@ public class Statistics {
         serializer.alias(Runtime.class.getSimpleName().toLowerCase(), Runtime.class);
         serializer.useAttributeFor(Runtime.class, "label");
         serializer.useAttributeFor(Runtime.class, "timeMS");
+        serializer.useAttributeFor(Runtime.class, "iterations");
 
         serializer.aliasType(Artifact.class.getSimpleName().toLowerCase(), Artifact.class);
 
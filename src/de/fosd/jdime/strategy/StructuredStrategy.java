@@ -26,21 +26,32 @@
  */
 package de.fosd.jdime.strategy;
 
-import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.artifact.ast.LabelDictionary;
+import de.fosd.jdime.artifact.ast.ParseCache;
 import de.fosd.jdime.artifact.file.FileArtifact;
 import de.fosd.jdime.config.merge.MergeContext;
 import de.fosd.jdime.config.merge.MergeScenario;
 import de.fosd.jdime.operations.MergeOperation;
+import de.fosd.jdime.stats.KeyEnums;
 import de.fosd.jdime.stats.MergeScenarioStatistics;
 import de.fosd.jdime.stats.Runtime;
 import de.fosd.jdime.stats.Statistics;
 import de.fosd.jdime.stats.StatisticsInterface;
 import de.fosd.jdime.stats.parser.ParseResult;
+import de.fosd.jdime.util.NoExitGuard;
 
+import static de.fosd.jdime.stats.Runtime.COST_MODEL_LABEL;
 import static de.fosd.jdime.stats.Runtime.MERGE_LABEL;
 import static de.fosd.jdime.strdump.DumpMode.PLAINTEXT_TREE;
 
@@ -56,24 +67,18 @@ public class StructuredStrategy extends MergeStrategy<FileArtifact> {
     private static final String PARSE_LABEL = "parse";
     private static final String SEMISTRUCTURE_LABEL = "semistructure";
 
-    private SecurityManager systemSecurityManager = System.getSecurityManager();
-    private SecurityManager noExitManager = new SecurityManager() {
-            @Override
-            public void checkPermission(Permission perm) {
-                // allow anything.
-            }
-
-            @Override
-            public void checkPermission(Permission perm, Object context) {
-                // allow anything.
-            }
+    private static final int NUM_REVISIONS = 3;
 
-            @Override
-            public void checkExit(int status) {
-                super.checkExit(status);
-                throw new SecurityException("Captured attempt to exit JVM.");
-            }
-        };
+    /**
+     * The executor the three revisions of a merge scenario are parsed and semistructured on. Its daemon threads do
+     * not keep the JVM alive.
+     */
+    private static final ExecutorService REVISION_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(NUM_REVISIONS, java.lang.Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "revision-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     /**
      * The source <code>FileArtifacts</code> are extracted from the
@@ -107,33 +112,43 @@ public class StructuredStrategy extends MergeStrategy<FileArtifact> {
         String bPath = baseFile.getFile().getPath();
         String rPath = rightFile.getFile().getPath();
 
-        System.setSecurityManager(noExitManager);
-
         LOG.info(() -> String.format("Merging:%nLeft: %s%nBase: %s%nRight: %s", lPath, bPath, rPath));
 
-        try {
+        try (NoExitGuard guard = NoExitGuard.open()) {
             Runtime parse = new Runtime(PARSE_LABEL);
             Runtime semistructure = new Runtime(SEMISTRUCTURE_LABEL);
             Runtime merge = new Runtime(MERGE_LABEL);
+            Runtime costModel = new Runtime(COST_MODEL_LABEL);
 
-            ASTNodeArtifact left;
-            ASTNodeArtifact base;
-            ASTNodeArtifact right;
+            MergeScenarioStatistics scenarioStatistics = new MergeScenarioStatistics(triple);
+
+            FileArtifact[] files = { leftFile, baseFile, rightFile };
+            ASTNodeArtifact[] trees;
 
             try (Runtime.Measurement m = parse.time())  {
-                left = new ASTNodeArtifact(leftFile);
-                base = new ASTNodeArtifact(baseFile);
-                right = new ASTNodeArtifact(rightFile);
+                LabelDictionary labels = new LabelDictionary();
+                ParseCache cache = context.getParseCache();
+
+                if (cache != null) {
+                    trees = forEachRevision(i -> cache.parse(files[i], labels, scenarioStatistics));
+                } else {
+                    trees = forEachRevision(i -> new ASTNodeArtifact(files[i], labels));
+                }
             }
 
             if (context.isSemiStructured()) {
                 try (Runtime.Measurement m = semistructure.time()) {
-                    left = SemiStructuredStrategy.makeSemiStructured(left, context.getSemiStructuredLevel(), leftFile);
-                    base = SemiStructuredStrategy.makeSemiStructured(base, context.getSemiStructuredLevel(), baseFile);
-                    right = SemiStructuredStrategy.makeSemiStructured(right, context.getSemiStructuredLevel(), rightFile);
+                    ASTNodeArtifact[] structured = trees;
+                    KeyEnums.Level level = context.getSemiStructuredLevel();
+
+                    trees = forEachRevision(i -> SemiStructuredStrategy.makeSemiStructured(structured[i], level, files[i]));
                 }
             }
 
+            ASTNodeArtifact left = trees[0];
+            ASTNodeArtifact base = trees[1];
+            ASTNodeArtifact right = trees[2];
+
             ASTNodeArtifact targetNode = left.copy();
 
             MergeScenario<ASTNodeArtifact> nodeTriple = new MergeScenario<>(triple.getMergeType(), left, base, right);
@@ -143,8 +158,12 @@ public class StructuredStrategy extends MergeStrategy<FileArtifact> {
             LOG.finest(() -> String.format("MergeScenario:%n%s", nodeTriple.toString()));
             LOG.finest("Applying an ASTNodeArtifact MergeOperation.");
 
+            context.setCostModelRuntime(costModel);
+
             try (Runtime.Measurement m = merge.time()) {
                 astMergeOp.apply(context);
+            } finally {
+                context.setCostModelRuntime(null);
             }
 
             targetNode.setRevision(MergeScenario.TARGET, true); // TODO do this somewhere else?
@@ -172,7 +191,6 @@ public class StructuredStrategy extends MergeStrategy<FileArtifact> {
 
             if (context.hasStatistics()) {
                 Statistics statistics = context.getStatistics();
-                MergeScenarioStatistics scenarioStatistics = new MergeScenarioStatistics(triple);
 
                 if (!context.isDiffOnly()) {
                     ParseResult parseResult = scenarioStatistics.setLineStatistics(target.getContent());
@@ -185,12 +203,53 @@ public class StructuredStrategy extends MergeStrategy<FileArtifact> {
                 scenarioStatistics.add(StatisticsInterface.getASTStatistics(left, right.getRevision()));
                 scenarioStatistics.add(StatisticsInterface.getASTStatistics(right, left.getRevision()));
                 scenarioStatistics.add(StatisticsInterface.getASTStatistics(targetNode, null));
-                Stream.of(parse, semistructure, merge).filter(Runtime::isMeasured).forEach(scenarioStatistics::putRuntime);
+                Stream.of(parse, semistructure, merge, costModel).filter(Runtime::isMeasured).forEach(scenarioStatistics::putRuntime);
 
                 statistics.addScenarioStatistics(scenarioStatistics);
             }
-        } finally {
-            System.setSecurityManager(systemSecurityManager);
         }
     }
+
+    /**
+     * Applies <code>task</code> to the indices 0, 1 and 2 of the left, base and right revision of a merge scenario.
+     * The three applications run in parallel on the {@link #REVISION_EXECUTOR}. Exceptions thrown by
+     * <code>task</code> are rethrown in the calling thread.
+     *
+     * @param task
+     *         the task to apply to the revision indices
+     * @return the results of <code>task</code> indexed like the revisions
+     */
+    private static ASTNodeArtifact[] forEachRevision(IntFunction<ASTNodeArtifact> task) {
+        List<Future<ASTNodeArtifact>> futures = new ArrayList<>(NUM_REVISIONS);
+
+        for (int i = 0; i < NUM_REVISIONS; i++) {
+            int revision = i;
+            futures.add(REVISION_EXECUTOR.submit(() -> task.apply(revision)));
+        }
+
+        ASTNodeArtifact[] results = new ASTNodeArtifact[NUM_REVISIONS];
+
+        for (int i = 0; i < NUM_REVISIONS; i++) {
+            try {
+                results[i] = futures.get(i).get();
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+
+        return results;
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.util;
+
+import java.security.Permission;
+
+/**
+ * Prevents ExtendJ from terminating the JVM while code is parsed. While at least one {@link NoExitGuard} is open, a
+ * <code>SecurityManager</code> that allows everything except calls to {@link System#exit(int)} is installed. The
+ * previous <code>SecurityManager</code> is restored when the last open guard is closed. Other than swapping the
+ * <code>SecurityManager</code> around every parse, this is safe if multiple threads parse at the same time.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * try (NoExitGuard guard = NoExitGuard.open()) {
+ *     // parse
+ * }
+ * }</pre>
+ */
+public final class NoExitGuard implements AutoCloseable {
+
+    private static final SecurityManager NO_EXIT_MANAGER = new SecurityManager() {
+
+        @Override
+        public void checkPermission(Permission perm) {
+            // allow anything.
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            // allow anything.
+        }
+
+        @Override
+        public void checkExit(int status) {
+            super.checkExit(status);
+            throw new SecurityException("Captured attempt to exit JVM.");
+        }
+    };
+
+    private static final Object LOCK = new Object();
+
+    private static int openGuards = 0;
+    private static SecurityManager previousManager;
+
+    private boolean closed;
+
+    private NoExitGuard() {
+        this.closed = false;
+    }
+
+    /**
+     * Opens a new {@link NoExitGuard}. If it is the only open one, the no-exit <code>SecurityManager</code> is
+     * installed.
+     *
+     * @return the open {@link NoExitGuard}
+     */
+    public static NoExitGuard open() {
+
+        synchronized (LOCK) {
+            if (openGuards++ == 0) {
+                previousManager = System.getSecurityManager();
+                System.setSecurityManager(NO_EXIT_MANAGER);
+            }
+        }
+
+        return new NoExitGuard();
+    }
+
+    /**
+     * Closes this {@link NoExitGuard}. If it was the last open one, the previous <code>SecurityManager</code> is
+     * restored. Closing a guard more than once has no effect.
+     */
+    @Override
+    public void close() {
+
+        synchronized (LOCK) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            if (--openGuards == 0) {
+                System.setSecurityManager(previousManager);
+                previousManager = null;
+            }
+        }
+    }
+}
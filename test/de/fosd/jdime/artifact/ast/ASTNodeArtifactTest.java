@@ -0,0 +1,184 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fosd.jdime.artifact.Artifacts;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.config.merge.MergeType;
+import de.fosd.jdime.operations.MergeOperation;
+import org.extendj.ast.ASTNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ASTNodeArtifact} class.
+ */
+public class ASTNodeArtifactTest {
+
+    private static final String BASE = String.join("\n",
+            "package p;",
+            "",
+            "public class A {",
+            "",
+            "    private int x = 1;",
+            "",
+            "    public int m(int a) {",
+            "        int b = a + x;",
+            "        return b;",
+            "    }",
+            "",
+            "    public int n(int a) {",
+            "        return a * x;",
+            "    }",
+            "}",
+            "");
+
+    private static final String LEFT = BASE.replace("    public int n(int a) {\n", "    public int o() {\n        return x + 1;\n    }\n\n    public int n(int a) {\n");
+    private static final String RIGHT = BASE.replace("        return a * x;\n", "        x = a;\n        return a * x;\n");
+
+    /**
+     * Rebuilding the AST of a modified copy must not modify the <code>ASTNode</code>s it shares with the original.
+     */
+    @Test
+    public void rebuildingCopyLeavesOriginalUnchanged() {
+        ASTNodeArtifact original = new ASTNodeArtifact(MergeScenario.LEFT, "A.java", LEFT);
+        String before = original.prettyPrint();
+
+        ASTNodeArtifact copy = Artifacts.copyTree(original);
+
+        removeMethod(copy, "n");
+        assertFalse(copy.prettyPrint().contains("return a * x;"));
+
+        assertParentsUnchanged(original);
+        assertEquals(before, original.prettyPrint());
+    }
+
+    /**
+     * Rebuilding the AST of a modified original must not modify the <code>ASTNode</code>s it shares with its copies.
+     */
+    @Test
+    public void rebuildingOriginalLeavesCopyUnchanged() {
+        ASTNodeArtifact original = new ASTNodeArtifact(MergeScenario.LEFT, "A.java", LEFT);
+        String before = original.prettyPrint();
+
+        ASTNodeArtifact copy = Artifacts.copyTree(original);
+
+        removeMethod(original, "n");
+        assertFalse(original.prettyPrint().contains("return a * x;"));
+
+        assertParentsUnchanged(copy);
+        assertEquals(before, copy.prettyPrint());
+    }
+
+    /**
+     * Merging the trees and pretty printing the result must not modify the <code>ASTNode</code>s of the input trees,
+     * even though the target tree shares them with the input trees until it is rebuilt.
+     */
+    @Test
+    public void mergeLeavesInputTreesUnchanged() {
+        ASTNodeArtifact left = new ASTNodeArtifact(MergeScenario.LEFT, "A.java", LEFT);
+        ASTNodeArtifact base = new ASTNodeArtifact(MergeScenario.BASE, "A.java", BASE);
+        ASTNodeArtifact right = new ASTNodeArtifact(MergeScenario.RIGHT, "A.java", RIGHT);
+
+        String leftBefore = left.prettyPrint();
+        String baseBefore = base.prettyPrint();
+        String rightBefore = right.prettyPrint();
+
+        ASTNodeArtifact target = left.copy();
+        MergeScenario<ASTNodeArtifact> scenario = new MergeScenario<>(MergeType.THREEWAY, left, base, right);
+
+        new MergeOperation<>(scenario, target).apply(new MergeContext());
+        target.setRevision(MergeScenario.TARGET, true);
+
+        String merged = target.prettyPrint();
+
+        assertTrue(merged.contains("return x + 1;"));
+        assertTrue(merged.contains("x = a;"));
+
+        assertParentsUnchanged(left);
+        assertParentsUnchanged(base);
+        assertParentsUnchanged(right);
+
+        assertEquals(leftBefore, left.prettyPrint());
+        assertEquals(baseBefore, base.prettyPrint());
+        assertEquals(rightBefore, right.prettyPrint());
+        assertEquals(merged, target.prettyPrint());
+    }
+
+    /**
+     * Removes the first method with the given name from the given tree.
+     *
+     * @param tree
+     *         the tree to remove the method from
+     * @param name
+     *         the name of the method
+     */
+    private static void removeMethod(ASTNodeArtifact tree, String name) {
+        String representation = "MethodDecl ID=\"" + name + "\"";
+        ASTNodeArtifact method = Artifacts.dfsStream(tree).filter(n -> n.toString().startsWith(representation))
+                                          .findFirst().orElseThrow(AssertionError::new);
+
+        ASTNodeArtifact parent = method.getParent();
+        List<ASTNodeArtifact> children = new ArrayList<>(parent.getChildren());
+
+        children.remove(method);
+        parent.setChildren(children);
+    }
+
+    /**
+     * Asserts that the <code>ASTNode</code> of every node in the given tree is still the parent of the
+     * <code>ASTNode</code>s of its children. Children that were added to the target tree by the merge are skipped.
+     *
+     * @param tree
+     *         the tree to check
+     */
+    private static void assertParentsUnchanged(ASTNodeArtifact tree) {
+
+        for (ASTNodeArtifact node : Artifacts.dfsIterable(tree)) {
+            ASTNode<?> astNode = node.getASTNode();
+
+            for (int i = 0; i < node.getNumChildren(); i++) {
+                ASTNodeArtifact child = node.getChild(i);
+
+                if (child.getParent() != node) {
+                    continue;
+                }
+
+                assertSame(astNode.getChildNoTransform(i), child.getASTNode());
+                assertSame(astNode, child.getASTNode().getParent());
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.artifact.ast;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import de.fosd.jdime.artifact.file.FileArtifact;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.config.merge.MergeType;
+import de.fosd.jdime.stats.MergeScenarioStatistics;
+import org.junit.Test;
+
+import static de.fosd.jdime.strdump.DumpMode.PLAINTEXT_TREE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ParseCache} class.
+ */
+public class ParseCacheTest {
+
+    private static final String SOURCE = String.join("\n",
+            "package p;",
+            "",
+            "import java.util.List;",
+            "",
+            "/**",
+            " * A class.",
+            " */",
+            "public class A<T> extends java.util.ArrayList<T> {",
+            "",
+            "    private static final long serialVersionUID = 1L;",
+            "",
+            "    /** Returns the size. */",
+            "    public int m(List<? extends T> a) {",
+            "        int b = a.size() + p.B.C.x + 0x1F;",
+            "        Runnable r = () -> System.out.println(\"\\u00e4\" + 'c');",
+            "        outer: for (T t : a) { if (t == null) break outer; }",
+            "        return b;",
+            "    }",
+            "}",
+            "");
+
+    /**
+     * An AST rebuilt from the directory of a {@link ParseCache} must be indistinguishable from a freshly parsed one.
+     */
+    @Test
+    public void storedASTsAreRebuiltByLaterRuns() throws IOException {
+        Path dir = Files.createTempDirectory("parse-cache");
+
+        try {
+            FileArtifact file = write(dir, SOURCE);
+            ASTNodeArtifact parsed = new ASTNodeArtifact(file);
+
+            ParseCache first = cache(dir);
+            first.parse(file, new LabelDictionary(), statistics(file));
+
+            assertEquals(1, first.getMisses());
+            assertEquals(1, list(dir.resolve("cache")).length);
+
+            ParseCache second = cache(dir);
+            ASTNodeArtifact restored = second.parse(file, new LabelDictionary(), statistics(file));
+
+            assertEquals(1, second.getDiskHits());
+            assertEquals(0, second.getMisses());
+            assertEquals(parsed.prettyPrint(), restored.prettyPrint());
+            assertEquals(parsed.dump(PLAINTEXT_TREE), restored.dump(PLAINTEXT_TREE));
+            assertEquals(parsed.astnode.dumpTree(), restored.astnode.dumpTree());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Unreadable files in the directory of a {@link ParseCache} must be treated like misses.
+     */
+    @Test
+    public void corruptFilesAreParsedAgain() throws IOException {
+        Path dir = Files.createTempDirectory("parse-cache");
+
+        try {
+            FileArtifact file = write(dir, SOURCE);
+
+            cache(dir).parse(file, new LabelDictionary(), statistics(file));
+
+            for (File stored : list(dir.resolve("cache"))) {
+                Files.write(stored.toPath(), new byte[] { 1, 2, 3 });
+            }
+
+            ParseCache cache = cache(dir);
+            ASTNodeArtifact tree = cache.parse(file, new LabelDictionary(), statistics(file));
+
+            assertEquals(0, cache.getDiskHits());
+            assertEquals(1, cache.getMisses());
+            assertTrue(tree.prettyPrint().contains("return b;"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * The directory of a {@link ParseCache} must hold at most the configured number of ASTs, the least recently used
+     * ones are deleted first.
+     */
+    @Test
+    public void leastRecentlyUsedASTsAreEvicted() throws IOException {
+        Path dir = Files.createTempDirectory("parse-cache");
+
+        try {
+            FileArtifact a = write(dir, "A.java", SOURCE);
+            FileArtifact b = write(dir, "B.java", SOURCE.replace("return b;", "return -b;"));
+            FileArtifact c = write(dir, "C.java", SOURCE.replace("return b;", "return b + 1;"));
+
+            ParseCache first = new ParseCache(0, dir.resolve("cache"), 2);
+            first.parse(a, new LabelDictionary(), statistics(a));
+            first.parse(b, new LabelDictionary(), statistics(b));
+
+            long now = System.currentTimeMillis();
+            File[] stored = list(dir.resolve("cache"));
+
+            for (int i = 0; i < stored.length; i++) {
+                assertTrue(stored[i].setLastModified(now - 10_000 * (i + 1)));
+            }
+
+            ParseCache second = new ParseCache(0, dir.resolve("cache"), 2);
+            second.parse(a, new LabelDictionary(), statistics(a)); // makes b the least recently used AST
+            second.parse(c, new LabelDictionary(), statistics(c));
+
+            assertEquals(1, second.getDiskHits());
+            assertEquals(2, list(dir.resolve("cache")).length);
+
+            ParseCache third = new ParseCache(0, dir.resolve("cache"), 2);
+            third.parse(a, new LabelDictionary(), statistics(a));
+            assertEquals(1, third.getDiskHits());
+
+            third.parse(b, new LabelDictionary(), statistics(b));
+            assertEquals(1, third.getMisses());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static ParseCache cache(Path dir) {
+        return new ParseCache(0, dir.resolve("cache"), ParseCache.DEFAULT_MAX_STORED_ENTRIES);
+    }
+
+    private static FileArtifact write(Path dir, String content) throws IOException {
+        return write(dir, "A.java", content);
+    }
+
+    private static FileArtifact write(Path dir, String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(UTF_8));
+
+        return new FileArtifact(MergeScenario.LEFT, file.toFile());
+    }
+
+    private static MergeScenarioStatistics statistics(FileArtifact file) {
+        return new MergeScenarioStatistics(new MergeScenario<>(MergeType.THREEWAY, file, file, file));
+    }
+
+    private static File[] list(Path dir) {
+        File[] files = dir.toFile().listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private static void delete(Path dir) throws IOException {
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * AutoMerge
+ * Copyright (C) 2013-2014 Olaf Lessenich
+ * Copyright (C) 2014-2017 University of Passau, Germany
+ * Copyright (C) 2018-2019 Fengmin Zhu
+ * Copyright (C) 2019-2020 Tsinghua University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ * Olaf Lessenich <lessenic@fim.uni-passau.de>
+ * Georg Seibt <seibt@fim.uni-passau.de>
+ * Fengmin Zhu <zfm17@mails.tsinghua.edu.cn>
+ */
+package de.fosd.jdime.matcher.hybrid;
+
+import de.fosd.jdime.artifact.ast.ASTNodeArtifact;
+import de.fosd.jdime.config.merge.MergeContext;
+import de.fosd.jdime.config.merge.MergeScenario;
+import de.fosd.jdime.config.merge.MergeType;
+import de.fosd.jdime.operations.MergeOperation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link HybridMatcher} class.
+ */
+public class HybridMatcherTest {
+
+    private static final String BASE = String.join("\n",
+            "package p;",
+            "",
+            "public class A {",
+            "",
+            "    public void m() {",
+            "        int a = 1;",
+            "        foo(a, b);",
+            "        int b = 2;",
+            "    }",
+            "}",
+            "");
+
+    private static final String LEFT = BASE.replace("        int a = 1;\n        foo(a, b);\n        int b = 2;\n",
+                                                    "        int b = 2;\n        foo(a, b);\n        int a = 1;\n");
+    private static final String RIGHT = BASE.replace("        int a = 1;\n", "        z = 5;\n");
+
+    /**
+     * Swapping two statements of a method body must not match them crosswise with their base versions, the ordered
+     * merge of the body would then insert one of them twice.
+     */
+    @Test
+    public void swappedStatementsAreNotDuplicated() {
+        ASTNodeArtifact left = new ASTNodeArtifact(MergeScenario.LEFT, "A.java", LEFT);
+        ASTNodeArtifact base = new ASTNodeArtifact(MergeScenario.BASE, "A.java", BASE);
+        ASTNodeArtifact right = new ASTNodeArtifact(MergeScenario.RIGHT, "A.java", RIGHT);
+
+        MergeContext context = new MergeContext();
+        context.setUseHybridMatcher(true);
+
+        ASTNodeArtifact target = left.copy();
+        MergeScenario<ASTNodeArtifact> scenario = new MergeScenario<>(MergeType.THREEWAY, left, base, right);
+
+        new MergeOperation<>(scenario, target).apply(context);
+        target.setRevision(MergeScenario.TARGET, true);
+
+        String merged = target.prettyPrint();
+
+        assertEquals(1, occurrences(merged, "foo(a, b);"));
+        assertEquals(1, occurrences(merged, "int b = 2;"));
+        assertTrue(merged.contains("z = 5;"));
+    }
+
+    /**
+     * Returns how often <code>part</code> occurs in <code>text</code>.
+     *
+     * @param text
+     *         the text to search
+     * @param part
+     *         the text to count
+     * @return the number of occurrences
+     */
+    private static int occurrences(String text, String part) {
+        int count = 0;
+
+        for (int i = text.indexOf(part); i != -1; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+
+        return count;
+    }
+}